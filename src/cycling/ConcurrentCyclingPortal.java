@@ -0,0 +1,507 @@
+package cycling;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A {@link CyclingPortal} that can be shared between threads.
+ * <p>
+ * Locking is striped by race: each race, along with its stages and segments, maps
+ * to one of a fixed number of stripes. Registering and deleting results and
+ * concluding a stage only take the stripe of the stage's race, so feeds for
+ * different races run in parallel. Anything that adds to or removes from the
+ * portal's tables, such as creating a stage or removing a rider, and whole portal
+ * operations take every stripe, always in the same order.
+ * <p>
+ * Lookups first run without locking under an optimistic stamp and only retry under
+ * the stripe's read lock if a change happened meanwhile, so they never block each
+ * other. Rankings, points and classifications run under the read lock, as they may
+ * compute and cache results, and run side by side with each other.
+ */
+public class ConcurrentCyclingPortal implements CyclingPortalInterface {
+    private static final int STRIPES = 16;
+
+    private final CyclingPortal portal;
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+
+    /**
+     * Creates an empty portal that scores with {@link ScoringTable#TOUR_DE_FRANCE}.
+     */
+    public ConcurrentCyclingPortal() {
+        this(ScoringTable.TOUR_DE_FRANCE);
+    }
+
+    /**
+     * Creates an empty portal that scores every stage with the given scheme.
+     *
+     * @param scoringScheme The points awarded in stages and segments.
+     */
+    public ConcurrentCyclingPortal(ScoringScheme scoringScheme) {
+        this(scoringScheme, ResultStorage.HEAP);
+    }
+
+    /**
+     * Creates an empty portal that scores every stage with the given scheme and keeps
+     * riders' checkpoint times in the given storage.
+     *
+     * @param scoringScheme The points awarded in stages and segments.
+     * @param resultStorage Where checkpoint times are kept.
+     */
+    public ConcurrentCyclingPortal(ScoringScheme scoringScheme, ResultStorage resultStorage) {
+        portal = new CyclingPortal(scoringScheme, resultStorage);
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new StampedLock();
+    }
+
+    // A query against the wrapped portal
+    @FunctionalInterface
+    private interface Query<T, E extends Exception> {
+        T run(CyclingPortal portal) throws E;
+    }
+
+    private int stripeOfRace(int raceId) {
+        return Math.floorMod(raceId, stripes.length);
+    }
+
+    // The stripe of the stage's race, or the first stripe if there is no such stage. Which race a stage belongs
+    // to only changes while every stripe is held, so this is stable while any stripe is held
+    private int stripeOfStage(CyclingPortal p, int stageId) {
+        try {
+            return stripeOfRace(p.getStageRace(stageId));
+        } catch (IDNotRecognisedException e) {
+            return 0;
+        }
+    }
+
+    // For queries that only read the portal. While a change is running the portal can be half updated, so
+    // whatever the query returned or threw is only trusted if no change under the stripe started before it finished.
+    // Adding to or removing from the portal's tables takes every stripe, so any stripe guards reads of the tables.
+    // A query run this way must finish however inconsistent what it reads is, so every loop in one is bounded by the
+    // length of an array it has read, see IntObjectMap.get
+    private <T, E extends Exception> T readOptimistically(int stripe, Query<T, E> query) throws E {
+        long stamp = stripes[stripe].tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                T result = query.run(portal);
+                if (stripes[stripe].validate(stamp)) return result;
+            } catch (Exception e) {
+                if (stripes[stripe].validate(stamp)) throw e;
+            }
+        }
+        return read(stripe, query);
+    }
+
+    private <T, E extends Exception> T read(int stripe, Query<T, E> query) throws E {
+        long stamp = stripes[stripe].readLock();
+        try {
+            return query.run(portal);
+        } finally {
+            stripes[stripe].unlockRead(stamp);
+        }
+    }
+
+    // The stripe the stage is most likely in, looked up without taking or validating any stripe. It is only where
+    // readStageOptimistically and lockStage start, both look the stage up again under the stripe before trusting it
+    private int guessStripeOfStage(int stageId) {
+        try {
+            return stripeOfStage(portal, stageId);
+        } catch (RuntimeException e) {
+            // The tables were caught half changed
+            return 0;
+        }
+    }
+
+    private <T, E extends Exception> T readStageOptimistically(int stageId, Query<T, E> query) throws E {
+        int stripe = guessStripeOfStage(stageId);
+        long stamp = stripes[stripe].tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                // The stage may have moved to another stripe since it was looked up, e.g. if the portal was loaded
+                if (stripeOfStage(portal, stageId) == stripe) {
+                    T result = query.run(portal);
+                    if (stripes[stripe].validate(stamp)) return result;
+                }
+            } catch (Exception e) {
+                if (stripes[stripe].validate(stamp)) throw e;
+            }
+        }
+        return readStage(stageId, query);
+    }
+
+    private <T, E extends Exception> T readStage(int stageId, Query<T, E> query) throws E {
+        Lock lock = lockStage(stageId, false);
+        try {
+            return query.run(portal);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Locks the stripe of the stage's race. The stage is looked up again once it is held in case it moved
+    private Lock lockStage(int stageId, boolean write) {
+        int stripe = guessStripeOfStage(stageId);
+        while (true) {
+            Lock lock = write ? stripes[stripe].asWriteLock() : stripes[stripe].asReadLock();
+            lock.lock();
+            int current = stripeOfStage(portal, stageId);
+            if (current == stripe) return lock;
+            lock.unlock();
+            stripe = current;
+        }
+    }
+
+    // Takes every stripe, always from first to last so that two threads doing so can't deadlock
+    private Lock[] lockAll(boolean write) {
+        Lock[] locks = new Lock[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            locks[i] = write ? stripes[i].asWriteLock() : stripes[i].asReadLock();
+            locks[i].lock();
+        }
+        return locks;
+    }
+
+    private static void unlockAll(Lock[] locks) {
+        for (int i = locks.length - 1; i >= 0; i--) locks[i].unlock();
+    }
+
+    /**
+     * Reports how many entities and results this portal holds and estimates how much
+     * memory each kind of structure retains. It reads like any other query of the
+     * tables, so it doesn't hold up results being registered, and those registered
+     * while it runs may or may not be counted.
+     *
+     * @return The current counts and estimates.
+     */
+    public PortalStats getPortalStats() {
+        return readOptimistically(0, CyclingPortal::getPortalStats);
+    }
+
+    /**
+     * The snapshot most recently published by {@link #publishSnapshot()}. Reading it
+     * takes no lock at all, so leaderboards can be served from it however busy the
+     * portal is.
+     *
+     * @return The last published snapshot, empty if none has been published yet.
+     */
+    public PortalSnapshot getSnapshot() {
+        return portal.getSnapshot();
+    }
+
+    /**
+     * Publishes an immutable snapshot of the portal as it is now, e.g. after a batch
+     * of results has been registered. Waits for changes in progress to finish and
+     * holds off new ones while it copies what changed since the last snapshot.
+     *
+     * @return The newly published snapshot.
+     */
+    public PortalSnapshot publishSnapshot() {
+        Lock[] locks = lockAll(false);
+        try {
+            return portal.publishSnapshot();
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    // Races
+
+    @Override
+    public int[] getRaceIds() {
+        return readOptimistically(0, CyclingPortal::getRaceIds);
+    }
+
+    @Override
+    public int createRace(String name, String description) throws IllegalNameException, InvalidNameException {
+        Lock[] locks = lockAll(true);
+        try {
+            return portal.createRace(name, description);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public String viewRaceDetails(int raceId) throws IDNotRecognisedException {
+        return readOptimistically(stripeOfRace(raceId), p -> p.viewRaceDetails(raceId));
+    }
+
+    @Override
+    public void removeRaceById(int raceId) throws IDNotRecognisedException {
+        Lock[] locks = lockAll(true);
+        try {
+            portal.removeRaceById(raceId);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public void removeRaceByName(String name) throws NameNotRecognisedException {
+        Lock[] locks = lockAll(true);
+        try {
+            portal.removeRaceByName(name);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public int getNumberOfStages(int raceId) throws IDNotRecognisedException {
+        return readOptimistically(stripeOfRace(raceId), p -> p.getNumberOfStages(raceId));
+    }
+
+    // Stages
+
+    @Override
+    public int addStageToRace(int raceId, String stageName, String description, double length, LocalDateTime startTime,
+                              StageType type)
+            throws IDNotRecognisedException, IllegalNameException, InvalidNameException, InvalidLengthException {
+        Lock[] locks = lockAll(true);
+        try {
+            return portal.addStageToRace(raceId, stageName, description, length, startTime, type);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public int[] getRaceStages(int raceId) throws IDNotRecognisedException {
+        return readOptimistically(stripeOfRace(raceId), p -> p.getRaceStages(raceId));
+    }
+
+    @Override
+    public double getStageLength(int stageId) throws IDNotRecognisedException {
+        return readStageOptimistically(stageId, p -> p.getStageLength(stageId));
+    }
+
+    @Override
+    public void removeStageById(int stageId) throws IDNotRecognisedException {
+        Lock[] locks = lockAll(true);
+        try {
+            portal.removeStageById(stageId);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public void concludeStagePreparation(int stageId) throws IDNotRecognisedException, InvalidStageStateException {
+        Lock lock = lockStage(stageId, true);
+        try {
+            portal.concludeStagePreparation(stageId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Segments
+
+    @Override
+    public int addCategorizedClimbToStage(int stageId, Double location, SegmentType type, Double averageGradient,
+                                          Double length) throws IDNotRecognisedException, InvalidLocationException,
+            InvalidStageStateException, InvalidStageTypeException {
+        Lock[] locks = lockAll(true);
+        try {
+            return portal.addCategorizedClimbToStage(stageId, location, type, averageGradient, length);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public int addIntermediateSprintToStage(int stageId, double location) throws IDNotRecognisedException,
+            InvalidLocationException, InvalidStageStateException, InvalidStageTypeException {
+        Lock[] locks = lockAll(true);
+        try {
+            return portal.addIntermediateSprintToStage(stageId, location);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public void removeSegment(int segmentId) throws IDNotRecognisedException, InvalidStageStateException {
+        Lock[] locks = lockAll(true);
+        try {
+            portal.removeSegment(segmentId);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public int[] getStageSegments(int stageId) throws IDNotRecognisedException {
+        return readStageOptimistically(stageId, p -> p.getStageSegments(stageId));
+    }
+
+    // Teams and riders
+
+    @Override
+    public int createTeam(String name, String description) throws IllegalNameException, InvalidNameException {
+        Lock[] locks = lockAll(true);
+        try {
+            return portal.createTeam(name, description);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public void removeTeam(int teamId) throws IDNotRecognisedException {
+        Lock[] locks = lockAll(true);
+        try {
+            portal.removeTeam(teamId);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public int[] getTeams() {
+        return readOptimistically(0, CyclingPortal::getTeams);
+    }
+
+    @Override
+    public int[] getTeamRiders(int teamId) throws IDNotRecognisedException {
+        return readOptimistically(0, p -> p.getTeamRiders(teamId));
+    }
+
+    @Override
+    public int createRider(int teamID, String name, int yearOfBirth) throws IDNotRecognisedException, IllegalArgumentException {
+        Lock[] locks = lockAll(true);
+        try {
+            return portal.createRider(teamID, name, yearOfBirth);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public void removeRider(int riderId) throws IDNotRecognisedException {
+        Lock[] locks = lockAll(true);
+        try {
+            portal.removeRider(riderId);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    // Results
+
+    @Override
+    public void registerRiderResultsInStage(int stageId, int riderId, LocalTime... checkpoints) throws IDNotRecognisedException,
+            DuplicatedResultException, InvalidCheckpointsException, InvalidStageStateException {
+        Lock lock = lockStage(stageId, true);
+        try {
+            portal.registerRiderResultsInStage(stageId, riderId, checkpoints);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public LocalTime[] getRiderResultsInStage(int stageId, int riderId) throws IDNotRecognisedException {
+        return readStageOptimistically(stageId, p -> p.getRiderResultsInStage(stageId, riderId));
+    }
+
+    @Override
+    public void deleteRiderResultsInStage(int stageId, int riderId) throws IDNotRecognisedException {
+        Lock lock = lockStage(stageId, true);
+        try {
+            portal.deleteRiderResultsInStage(stageId, riderId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public LocalTime getRiderAdjustedElapsedTimeInStage(int stageId, int riderId) throws IDNotRecognisedException {
+        return readStage(stageId, p -> p.getRiderAdjustedElapsedTimeInStage(stageId, riderId));
+    }
+
+    @Override
+    public int[] getRidersRankInStage(int stageId) throws IDNotRecognisedException {
+        return readStage(stageId, p -> p.getRidersRankInStage(stageId));
+    }
+
+    @Override
+    public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId) throws IDNotRecognisedException {
+        return readStage(stageId, p -> p.getRankedAdjustedElapsedTimesInStage(stageId));
+    }
+
+    @Override
+    public int[] getRidersPointsInStage(int stageId) throws IDNotRecognisedException {
+        return readStage(stageId, p -> p.getRidersPointsInStage(stageId));
+    }
+
+    @Override
+    public int[] getRidersMountainPointsInStage(int stageId) throws IDNotRecognisedException {
+        return readStage(stageId, p -> p.getRidersMountainPointsInStage(stageId));
+    }
+
+    // Classifications
+
+    @Override
+    public int[] getRidersGeneralClassificationRank(int raceId) throws IDNotRecognisedException {
+        return read(stripeOfRace(raceId), p -> p.getRidersGeneralClassificationRank(raceId));
+    }
+
+    @Override
+    public LocalTime[] getGeneralClassificationTimesInRace(int raceId) throws IDNotRecognisedException {
+        return read(stripeOfRace(raceId), p -> p.getGeneralClassificationTimesInRace(raceId));
+    }
+
+    @Override
+    public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
+        return read(stripeOfRace(raceId), p -> p.getRidersPointsInRace(raceId));
+    }
+
+    @Override
+    public int[] getRidersMountainPointsInRace(int raceId) throws IDNotRecognisedException {
+        return read(stripeOfRace(raceId), p -> p.getRidersMountainPointsInRace(raceId));
+    }
+
+    @Override
+    public int[] getRidersPointClassificationRank(int raceId) throws IDNotRecognisedException {
+        return read(stripeOfRace(raceId), p -> p.getRidersPointClassificationRank(raceId));
+    }
+
+    @Override
+    public int[] getRidersMountainPointClassificationRank(int raceId) throws IDNotRecognisedException {
+        return read(stripeOfRace(raceId), p -> p.getRidersMountainPointClassificationRank(raceId));
+    }
+
+    // Whole portal
+
+    @Override
+    public void eraseCyclingPortal() {
+        Lock[] locks = lockAll(true);
+        try {
+            portal.eraseCyclingPortal();
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public void saveCyclingPortal(String filename) throws IOException {
+        Lock[] locks = lockAll(false);
+        try {
+            portal.saveCyclingPortal(filename);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public void loadCyclingPortal(String filename) throws IOException, ClassNotFoundException {
+        Lock[] locks = lockAll(true);
+        try {
+            portal.loadCyclingPortal(filename);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+}
@@ -3,71 +3,394 @@ package cycling;
 import cycling.types.*;
 
 import java.io.*;
-import java.time.Duration;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 
 public class CyclingPortal implements CyclingPortalInterface {
-    // Data Store
-    private ArrayList<Team>  teams = new ArrayList<>();
-    private ArrayList<Rider> riders = new ArrayList<>();
+    private static final long ONE_SECOND_IN_NANOS = 1_000_000_000L;
+    private static final long NANOS_PER_DAY = 86_400L * ONE_SECOND_IN_NANOS;
+    // Estimated bytes of a rider and a race object, see getPortalStats
+    private static final long RIDER_BYTES = Footprint.ofObject(16 + 2 * Footprint.REFERENCE);
+    private static final long RACE_BYTES = Footprint.ofObject(16 + 3 * Footprint.REFERENCE);
+
+    // Data Store. Each table also indexes its entities by ID
+    // The child ID lists of every team, race and stage, as slices of one shared array
+    private ChildPool children = new ChildPool();
+    private TeamTable teams = new TeamTable(children);
+    private EntityTable<Rider> riders = new EntityTable<>();
+
+    private EntityTable<Race> races = new EntityTable<>();
+    // Teams, stages and segments are stored column by column rather than as one object each, and are read through
+    // short lived views
+    private StageTable stages = new StageTable(children);
+    private SegmentTable segments = new SegmentTable();
+
+    // Names are unique per kind of entity. Not serialised, rebuilt from the tables on load
+    private transient HashMap<String, Integer> teamNames = new HashMap<>();
+    private transient HashMap<String, Race> raceNames = new HashMap<>();
+    private transient HashMap<String, Integer> stageNames = new HashMap<>();
+
+    // Every name and description is stored through this pool, so repeated ones are kept once. Not serialised,
+    // saves already write a shared string once and it is refilled from the tables on load
+    private transient StringPool strings = new StringPool();
+
+    // Memoised results, each tagged with the version of the stage or race it was computed from
+    private transient IntObjectMap<StageResult> stageResultCache = new IntObjectMap<>();
+    private transient IntObjectMap<RaceClassification> raceClassificationCache = new IntObjectMap<>();
+    // Running totals per race, updated in place as results are registered and deleted
+    private transient IntObjectMap<RaceStandings> raceStandings = new IntObjectMap<>();
+    // Queries fill the caches and results for different races can be registered side by side (see
+    // ConcurrentCyclingPortal), so every cache lookup and store outside of removals is made holding this
+    private transient Object cacheLock = new Object();
+
+    // Running totals for getPortalStats, so that it doesn't walk every rider and cache entry. The riders' total
+    // changes as results for different races are registered side by side, the caches' total is guarded by cacheLock
+    private transient AtomicLong riderBytes = new AtomicLong();
+    private transient long cacheBytes;
+
+    // The last published snapshot and the IDs of what has changed since, guarded by snapshotLock. Changes are
+    // recorded rather than looked for so that publishing costs what changed, not the size of the portal
+    private transient volatile PortalSnapshot snapshot = PortalSnapshot.EMPTY;
+    private transient Object snapshotLock = new Object();
+    private transient IntSortedSet changedRaces = new IntSortedSet();
+    private transient IntSortedSet changedStages = new IntSortedSet();
+    private transient IntSortedSet changedTeams = new IntSortedSet();
+    private transient IntSortedSet changedRiders = new IntSortedSet();
+    // Set when the whole data store was replaced, so the next snapshot is built from scratch
+    private transient boolean snapshotReplaced;
+
+    // How this portal is set up, not part of its saved contents. A portal read back directly from a save gets the
+    // defaults, see readObject
+    private transient ScoringScheme scoringScheme;
+    private transient ResultStorage resultStorage;
 
-    private ArrayList<Race> races = new ArrayList<>();
-    private ArrayList<Stage> stages = new ArrayList<>();
-    private ArrayList<Segment> segments = new ArrayList<>();
+    /**
+     * Creates an empty portal that scores with {@link ScoringTable#TOUR_DE_FRANCE}.
+     */
+    public CyclingPortal() {
+        this(ScoringTable.TOUR_DE_FRANCE);
+    }
+
+    /**
+     * Creates an empty portal that scores every stage with the given scheme.
+     *
+     * @param scoringScheme The points awarded in stages and segments.
+     */
+    public CyclingPortal(ScoringScheme scoringScheme) {
+        this(scoringScheme, ResultStorage.HEAP);
+    }
+
+    /**
+     * Creates an empty portal that scores every stage with the given scheme and keeps
+     * riders' checkpoint times in the given storage. Results loaded with
+     * {@link #loadCyclingPortal(String)} are moved into this storage too.
+     *
+     * @param scoringScheme The points awarded in stages and segments.
+     * @param resultStorage Where checkpoint times are kept.
+     */
+    public CyclingPortal(ScoringScheme scoringScheme, ResultStorage resultStorage) {
+        this.scoringScheme = Objects.requireNonNull(scoringScheme);
+        this.resultStorage = Objects.requireNonNull(resultStorage);
+    }
 
     // Private helper functions
     private Race getRaceByIDOrNull(int raceId) {
-        return races.stream()
-                .filter(r -> r.id == raceId)
-                .findAny().orElse(null);
+        return races.get(raceId);
     }
 
     private Team getTeamByIDOrNull(int teamId){
-        return teams.stream()
-                .filter(t -> t.id == teamId)
-                .findAny().orElse(null);
+        return teams.get(teamId);
     }
 
     private Stage getStageByIDOrNull(int stageId){
-        return stages.stream()
-                .filter(s -> s.id == stageId)
-                .findAny().orElse(null);
+        return stages.get(stageId);
     }
 
     private Rider getRiderByIDOrNull(int riderId) {
-        return riders.stream()
-                .filter(r -> r.id == riderId)
-                .findAny().orElse(null);
+        return riders.get(riderId);
+    }
+
+    // Durations as times of day, the way the LocalTime queries report them. Wraps around after 24 hours
+    static LocalTime[] toLocalTimes(long[] nanos) {
+        LocalTime[] times = new LocalTime[nanos.length];
+        for (int i = 0; i < nanos.length; i++) times[i] = LocalTime.ofNanoOfDay(Math.floorMod(nanos[i], NANOS_PER_DAY));
+        return times;
+    }
+
+    // Copies as much of the values as fits into out and returns how many were written
+    private static int writeTo(int[] values, int[] out) {
+        int count = Math.min(values.length, out.length);
+        System.arraycopy(values, 0, out, 0, count);
+        return count;
+    }
+
+    private static int writeTo(int[] values, IntBuffer out) {
+        int count = Math.min(values.length, out.remaining());
+        out.put(values, 0, count);
+        return count;
     }
 
-    private Segment getSegmentByIDOrNull(int segmentId) {
-        return segments.stream()
-                .filter(s -> s.id == segmentId)
-                .findAny().orElse(null);
+    private static int writeTo(long[] values, long[] out) {
+        int count = Math.min(values.length, out.length);
+        System.arraycopy(values, 0, out, 0, count);
+        return count;
     }
 
-    private int stagePoints(StageType stageType, int rank) {
-        if (rank > 15) return 0;
-        return switch (stageType) {
-            case FLAT ->                new int[]{50, 30, 20, 18, 16, 14, 12, 10, 8, 7, 6, 5, 4, 3, 2}[rank];
-            case MEDIUM_MOUNTAIN ->     new int[]{30, 25, 22, 19, 17, 15, 13, 11, 9, 7, 6, 5, 4, 3, 2}[rank];
-            case HIGH_MOUNTAIN, TT ->   new int[]{20, 17, 15, 13, 11, 10,  9,  8, 7, 6, 5, 4, 3, 2, 1}[rank];
-        };
+    private static int writeTo(long[] values, LongBuffer out) {
+        int count = Math.min(values.length, out.remaining());
+        out.put(values, 0, count);
+        return count;
     }
 
-    private int segmentPoints(SegmentType segmentType, int rank) {
-        if (rank > 15) return 0;
-        return switch (segmentType) {
-            case SPRINT ->  new int[]{20, 17, 15, 13, 11, 10,  9,  8, 7, 6, 5, 4, 3, 2, 1}[rank];
-            case HC ->      new int[]{20, 15, 12, 10,  8,  6,  4,  2, 0, 0, 0, 0, 0, 0, 0}[rank];
-            case C1 ->      new int[]{10,  8,  6,  4,  2,  1,  0,  0, 0, 0, 0, 0, 0, 0, 0}[rank];
-            case C2 ->      new int[]{ 5,  3,  2,  1,  0,  0,  0,  0, 0, 0, 0, 0, 0, 0, 0}[rank];
-            case C3 ->      new int[]{ 2,  1,  0,  0,  0,  0,  0,  0, 0, 0, 0, 0, 0, 0, 0}[rank];
-            case C4 ->      new int[]{ 1,  0,  0,  0,  0,  0,  0,  0, 0, 0, 0, 0, 0, 0, 0}[rank];
-        };
+    // Only the data store is saved. A portal read back directly, rather than through loadCyclingPortal, is set up
+    // like one made with the default constructor and rebuilds everything else
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        scoringScheme = ScoringTable.TOUR_DE_FRANCE;
+        resultStorage = ResultStorage.HEAP;
+        cacheLock = new Object();
+        riderBytes = new AtomicLong();
+        snapshot = PortalSnapshot.EMPTY;
+        snapshotLock = new Object();
+        changedRaces = new IntSortedSet();
+        changedStages = new IntSortedSet();
+        changedTeams = new IntSortedSet();
+        changedRiders = new IntSortedSet();
+        resetDerivedState();
+    }
+
+    // Rebuilds everything derived from the data store, after it has been replaced by erase or load
+    private void resetDerivedState() {
+        // Also dedupes strings that were saved separately, e.g. from an older save
+        strings = new StringPool();
+        teams.internStrings(strings);
+        long totalRiderBytes = 0;
+        for (Rider r : riders) {
+            r.name = strings.intern(r.name);
+            totalRiderBytes += estimatedBytes(r);
+        }
+        riderBytes.set(totalRiderBytes);
+        for (Race r : races) {
+            r.name = strings.intern(r.name);
+            r.description = strings.intern(r.description);
+        }
+        stages.internStrings(strings);
+
+        teamNames = new HashMap<>();
+        raceNames = new HashMap<>();
+        stageNames = new HashMap<>();
+        for (int teamId : teams.ids()) teamNames.put(teams.get(teamId).name(), teamId);
+        for (Race r : races) raceNames.put(r.name, r);
+        for (int stageId : stages.ids()) stageNames.put(stages.get(stageId).name(), stageId);
+
+        stageResultCache = new IntObjectMap<>();
+        raceClassificationCache = new IntObjectMap<>();
+        raceStandings = new IntObjectMap<>();
+        synchronized (cacheLock) {
+            cacheBytes = 0;
+        }
+
+        for (int stageId : stages.ids()) stages.get(stageId).results().setOffHeap(resultStorage == ResultStorage.OFF_HEAP);
+
+        synchronized (snapshotLock) {
+            snapshotReplaced = true;
+        }
+    }
+
+    // Records that the entity needs rebuilding in the next published snapshot
+    private void snapshotChanged(IntSortedSet changed, int id) {
+        synchronized (snapshotLock) {
+            changed.add(id);
+        }
+    }
+
+    // A rider and their set of stages, as counted in riderBytes
+    private static long estimatedBytes(Rider rider) {
+        return RIDER_BYTES + rider.stages.estimatedBytes();
+    }
+
+    // Stores the value in the cache, or removes the entry if it is null, keeping cacheBytes the total of what the
+    // caches hold. Must be called holding cacheLock
+    private <T> void setCached(IntObjectMap<T> cache, int id, T value, ToLongFunction<T> bytes) {
+        T old = value == null ? cache.remove(id) : cache.put(id, value);
+        if (old != null) cacheBytes -= bytes.applyAsLong(old);
+        if (value != null) cacheBytes += bytes.applyAsLong(value);
+    }
+
+    private String raceDetails(Race race) {
+        int raceLength = Arrays.stream(children.toArray(race.stageList)).sum();
+        return("Race ID: " + race.id + ", Race description: " + race.description + ", Number of stages: " + children.size(race.stageList) + ", Length of race:" + raceLength);
+    }
+
+    // Removes stages along with their segments, results and cached scores. The whole closure is looked up before
+    // anything is changed, so if part of it is missing nothing is removed. The cost is proportional to what is
+    // removed. The stages' race is left for the caller to update
+    private void removeStagesCascading(int[] stageIds) throws IDNotRecognisedException {
+        Stage[] removed = new Stage[stageIds.length];
+        for (int i = 0; i < removed.length; i++) {
+            removed[i] = getStageByIDOrNull(stageIds[i]);
+            if (removed[i] == null) throw new IDNotRecognisedException();
+            for (int j = 0; j < removed[i].segmentCount(); j++) {
+                if (!segments.contains(removed[i].segmentAt(j))) throw new IDNotRecognisedException();
+            }
+            StageResults results = removed[i].results();
+            for (int row = 0; row < results.size(); row++) {
+                if (getRiderByIDOrNull(results.riderIdAt(row)) == null) throw new IDNotRecognisedException();
+            }
+        }
+
+        for (Stage stage : removed) {
+            for (int j = 0; j < stage.segmentCount(); j++) segments.remove(stage.segmentAt(j));
+            // The stage is going so drop its results directly rather than re-scoring it after each one
+            StageResults results = stage.results();
+            for (int row = 0; row < results.size(); row++) {
+                Rider rider = riders.get(results.riderIdAt(row));
+                long before = estimatedBytes(rider);
+                rider.stages.remove(stage.id);
+                riderBytes.addAndGet(estimatedBytes(rider) - before);
+            }
+            stageNames.remove(stage.name());
+            stages.remove(stage.id);
+            synchronized (cacheLock) {
+                setCached(stageResultCache, stage.id, null, StageResult::estimatedBytes);
+            }
+            snapshotChanged(changedStages, stage.id);
+        }
+    }
+
+    // Must be called after any change to a stage's segments or results so that cached results are recomputed
+    private void stageChanged(Stage stage) {
+        stage.incrementVersion();
+        Race race = getRaceByIDOrNull(stage.raceId());
+        if (race != null) race.version++;
+        snapshotChanged(changedStages, stage.id);
+        snapshotChanged(changedRaces, stage.raceId());
+    }
+
+    // Like stageChanged but for results only. If the race's standings were up to date they are kept that way by
+    // re-scoring just this stage, instead of being rebuilt from every stage on the next query
+    private void stageResultsChanged(Stage stage) {
+        Race race = getRaceByIDOrNull(stage.raceId());
+        RaceStandings standings = null;
+        if (race != null) {
+            synchronized (cacheLock) {
+                standings = raceStandings.get(race.id);
+            }
+        }
+        boolean standingsWereCurrent = standings != null && standings.raceVersion == race.version;
+
+        stageChanged(stage);
+        if (!standingsWereCurrent) return;
+
+        try {
+            long before = standings.estimatedBytes();
+            standings.applyStage(stage.id, getStageResult(stage));
+            standings.raceVersion = race.version;
+            synchronized (cacheLock) {
+                cacheBytes += standings.estimatedBytes() - before;
+            }
+        } catch (IDNotRecognisedException e) {
+            // Can't score the stage, so let the next query rebuild the standings and report it
+            synchronized (cacheLock) {
+                setCached(raceStandings, race.id, null, RaceStandings::estimatedBytes);
+            }
+        }
+    }
+
+    // The elapsed and adjusted elapsed times of every rider in the stage. Sorts the finishers once then
+    // sweeps down the order; a rider less than a second behind the one in front inherits their adjusted time,
+    // which carries the time of the front of a group all the way down it
+    private StageTimes getStageTimes(Stage stage) {
+        StageResults results = stage.results();
+        int[] riderIds = new int[results.size()];
+        long[] elapsed = new long[results.size()];
+        for (int row = 0; row < riderIds.length; row++) {
+            riderIds[row] = results.riderIdAt(row);
+            elapsed[row] = results.elapsedNanos(row);
+        }
+        // Riders with the same elapsed time are ordered by ID
+        Ranking.sort(elapsed, riderIds, riderIds.length);
+
+        long[] adjusted = new long[riderIds.length];
+        boolean timeTrial = stage.type() == StageType.TT;
+        for (int i = 0; i < riderIds.length; i++) {
+            // There are no adjustments on time trials
+            boolean inGroupWithPrevious = !timeTrial && i > 0 && elapsed[i] - elapsed[i - 1] < ONE_SECOND_IN_NANOS;
+            adjusted[i] = inGroupWithPrevious ? adjusted[i - 1] : elapsed[i];
+        }
+
+        return new StageTimes(riderIds, elapsed, adjusted);
+    }
+
+    private StageResult getStageResult(Stage stage) throws IDNotRecognisedException {
+        StageResult cached;
+        synchronized (cacheLock) {
+            cached = stageResultCache.get(stage.id);
+        }
+        if (cached != null && cached.stageVersion == stage.version()) return cached;
+
+        StageResult stageResult = computeStageResult(stage);
+        synchronized (cacheLock) {
+            setCached(stageResultCache, stage.id, stageResult, StageResult::estimatedBytes);
+        }
+        return stageResult;
+    }
+
+    private RaceClassification getRaceClassification(Race race) throws IDNotRecognisedException {
+        RaceClassification cached;
+        synchronized (cacheLock) {
+            cached = raceClassificationCache.get(race.id);
+        }
+        if (cached != null && cached.raceVersion == race.version) return cached;
+
+        RaceClassification classification = computeRaceClassification(race);
+        synchronized (cacheLock) {
+            setCached(raceClassificationCache, race.id, classification, RaceClassification::estimatedBytes);
+        }
+        return classification;
+    }
+
+    private RaceStandings getRaceStandings(Race race) throws IDNotRecognisedException {
+        RaceStandings standings;
+        synchronized (cacheLock) {
+            standings = raceStandings.get(race.id);
+        }
+        if (standings != null && standings.raceVersion == race.version) return standings;
+
+        // Out of date (e.g. a stage or segment was removed) so add up every stage again
+        standings = new RaceStandings(race.version);
+        for (int i = 0; i < children.size(race.stageList); i++) {
+            Stage stage = getStageByIDOrNull(children.get(race.stageList, i));
+            if (stage == null) throw new IDNotRecognisedException();
+            standings.applyStage(stage.id, getStageResult(stage));
+        }
+        synchronized (cacheLock) {
+            setCached(raceStandings, race.id, standings, RaceStandings::estimatedBytes);
+        }
+        return standings;
+    }
+
+    // Reads the three classifications out of the race's maintained standings
+    private RaceClassification computeRaceClassification(Race race) throws IDNotRecognisedException {
+        RaceStandings standings = getRaceStandings(race);
+
+        int[] riderIds = standings.generalClassification.ids();
+        long[] times = standings.generalClassification.keys();
+        int[] points = new int[riderIds.length];
+        int[] mountainPoints = new int[riderIds.length];
+        for (int i = 0; i < riderIds.length; i++) {
+            long[] riderTotals = standings.totalsOf(riderIds[i]);
+            points[i] = (int) riderTotals[1];
+            mountainPoints[i] = (int) riderTotals[2];
+        }
+
+        return new RaceClassification(race.id, race.version, riderIds, times, points, mountainPoints,
+                standings.pointsClassification.ids(), standings.mountainClassification.ids());
     }
 
     /**
@@ -83,13 +406,15 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public void removeRaceByName(String name) throws NameNotRecognisedException {
-        Race race = races.stream()
-                .filter(r -> r.name.equals(name))
-                .findAny()
-                .orElse(null);
+        Race race = raceNames.get(name);
         if (race == null) throw new NameNotRecognisedException("Race not found in removeRaceByName");
 
-        races.remove(race);
+        try {
+            removeRaceById(race.id);
+        } catch (IDNotRecognisedException e) {
+            // Will not happen, the race was found above
+            throw new NameNotRecognisedException("Race not found in removeRaceByName");
+        }
     }
 
     /**
@@ -108,27 +433,10 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public int[] getRidersGeneralClassificationRank(int raceId) throws IDNotRecognisedException {
-        int[] stageIds = getRaceStages(raceId);
-        // Value is the adjusted and  accumulated elapsed times from all stages in the race that the rider takes part in.
-        HashMap<Rider, Long> results = new HashMap<>();
-
-        for (int stageId : stageIds) {
-            Stage stage = getStageByIDOrNull(stageId);
-            if (stage == null) throw new IDNotRecognisedException();
-
-            Rider[] applicableRiders = riders.stream().filter(r -> r.results.containsKey(stage.id)).toArray(Rider[]::new);
-
-            // Riders with their adjusted elapsed time in a stage
-            for (Rider rider : applicableRiders) {
-                long val = getRiderAdjustedElapsedTimeInStage(stageId, rider.id).toSecondOfDay();
-                if (results.containsKey(rider)) results.put(rider, results.get(rider) + val);
-                else results.put(rider, val);
-            }
-        }
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
 
-        HashMap<Long, Rider> resultsHMFlipped = new HashMap<>();
-        results.forEach((rider, val) -> resultsHMFlipped.put(val, rider));
-        return hashMapValuesSortedByComparableKey(resultsHMFlipped).stream().mapToInt(r -> r.id).toArray();
+        return getRaceClassification(race).riderIds.clone();
     }
 
     /**
@@ -149,28 +457,79 @@ public class CyclingPortal implements CyclingPortalInterface {
     public LocalTime[] getGeneralClassificationTimesInRace(int raceId) throws IDNotRecognisedException {
         // Make sure that I'm returning the correct type of times
         // I am: https://vle.exeter.ac.uk/mod/forum/discuss.php?d=227212
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+
+        return toLocalTimes(getGeneralClassificationNanosInRace(raceId));
+    }
+
+    /**
+     * Get the general classification times of riders in a race in nanoseconds.
+     * Unlike {@link #getGeneralClassificationTimesInRace(int)} the times do not wrap
+     * around after 24 hours, so they are correct for races of any length.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId The ID of the race being queried.
+     * @return The sum of each rider's adjusted elapsed times in nanoseconds, in the
+     * order of {@link #getRidersGeneralClassificationRank(int)}. An empty array
+     * if there is no result for any stage in the race.
+     * @throws IDNotRecognisedException If the ID does not match any race in the
+     *                                  system.
+     */
+    public long[] getGeneralClassificationNanosInRace(int raceId) throws IDNotRecognisedException {
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+
+        return getRaceClassification(race).adjustedElapsedNanos.clone();
+    }
+
+    /**
+     * Writes the riders' general classification times, in nanoseconds and in general
+     * classification order, into {@code out} instead of allocating a new array. If
+     * {@code out} is too short only the first {@code out.length} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId The ID of the race being queried.
+     * @param out    The array to write into, starting at index 0.
+     * @return The number of riders written.
+     * @throws IDNotRecognisedException If the ID does not match any race in the
+     *                                  system.
+     */
+    public int getGeneralClassificationNanosInRace(int raceId, long[] out) throws IDNotRecognisedException {
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
 
-        int[] stageIds = getRaceStages(raceId);
+        return writeTo(getRaceClassification(race).adjustedElapsedNanos, out);
+    }
 
-        int[] riderIds = getRidersGeneralClassificationRank(raceId);
-        Rider[] riders = Arrays.stream(riderIds).mapToObj(this::getRiderByIDOrNull).toArray(Rider[]::new);
-        if (Arrays.stream(riders).anyMatch(Objects::isNull)) throw new IDNotRecognisedException();
+    /**
+     * Writes the riders' general classification times, in nanoseconds and in general
+     * classification order, into {@code out} instead of allocating a new array. If
+     * {@code out} has too little room only the first {@code out.remaining()} are
+     * written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId The ID of the race being queried.
+     * @param out    The buffer to write into, starting at its position, which is
+     *               advanced past the values written.
+     * @return The number of riders written.
+     * @throws IDNotRecognisedException If the ID does not match any race in the
+     *                                  system.
+     */
+    public int getGeneralClassificationNanosInRace(int raceId, LongBuffer out) throws IDNotRecognisedException {
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
 
-        return Arrays.stream(riders).map(r -> Arrays.stream(stageIds)
-                    .mapToObj(sid -> {
-                        try {
-                            return getRiderAdjustedElapsedTimeInStage(sid, r.id);
-                        } catch (IDNotRecognisedException e) {
-                            return LocalTime.MIDNIGHT;
-                        }
-                    })
-                    .filter(time -> time != LocalTime.MIDNIGHT)
-                    .reduce(LocalTime.MIDNIGHT, (subtotal, time) -> LocalTime.MIDNIGHT.plus(
-                            Duration.between(LocalTime.MIDNIGHT, time).plus(Duration.between(LocalTime.MIDNIGHT, subtotal))
-                    ))
-        ).toArray(LocalTime[]::new);
+        return writeTo(getRaceClassification(race).adjustedElapsedNanos, out);
     }
 
+
     /**
      * Get the overall points of riders in a race.
      * <p>
@@ -187,33 +546,10 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
-        int[] rankedRiderIds = getRidersGeneralClassificationRank(raceId); // Order of rider ids to match
-
         Race race = getRaceByIDOrNull(raceId);
         if (race == null) throw new IDNotRecognisedException();
-        int[] stageIds = getRaceStages(race.id);
-        Stage[] stages = Arrays.stream(stageIds).mapToObj(this::getStageByIDOrNull).toArray(Stage[]::new);
-        if (Arrays.stream(stages).anyMatch(Objects::isNull)) throw new IDNotRecognisedException();
-
-        // Key riderId. Val Points
-        HashMap<Integer, Integer> riderPoints = new HashMap<>();
-        for (Stage stage : stages) {
-            int[] ridersInStage = getRidersRankInStage(stage.id);
-            int[] pointsInStage = getRidersPointsInStage(stage.id);
-
-            for (int i = 0; i < ridersInStage.length; i++) {
-                int rid = ridersInStage[i];
-                if (!riderPoints.containsKey(rid)) riderPoints.put(rid, 0);
-                riderPoints.put(rid, riderPoints.get(rid) + pointsInStage[i]);
-            }
-        }
-
-        ArrayList<Integer> orderedPoints = new ArrayList<>(); // Ordered by rankedRiderIds
-        for (int rid : rankedRiderIds) {
-            orderedPoints.add(riderPoints.get(rid));
-        }
 
-        return orderedPoints.stream().mapToInt(i -> i).toArray();
+        return getRaceClassification(race).points.clone();
     }
 
     /**
@@ -233,33 +569,10 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public int[] getRidersMountainPointsInRace(int raceId) throws IDNotRecognisedException {
-        int[] rankedRiderIds = getRidersGeneralClassificationRank(raceId); // Order of rider ids to match
-
         Race race = getRaceByIDOrNull(raceId);
         if (race == null) throw new IDNotRecognisedException();
-        int[] stageIds = getRaceStages(race.id);
-        Stage[] stages = Arrays.stream(stageIds).mapToObj(this::getStageByIDOrNull).toArray(Stage[]::new);
-        if (Arrays.stream(stages).anyMatch(Objects::isNull)) throw new IDNotRecognisedException();
-
-        // Key riderId. Val Points
-        HashMap<Integer, Integer> riderPoints = new HashMap<>();
-        for (Stage stage : stages) {
-            int[] ridersInStage = getRidersRankInStage(stage.id);
-            int[] pointsInStage = getRidersMountainPointsInStage(stage.id);
-
-            for (int i = 0; i < ridersInStage.length; i++) {
-                int rid = ridersInStage[i];
-                if (!riderPoints.containsKey(rid)) riderPoints.put(rid, 0);
-                riderPoints.put(rid, riderPoints.get(rid) + pointsInStage[i]);
-            }
-        }
 
-        ArrayList<Integer> orderedPoints = new ArrayList<>(); // Ordered by rankedRiderIds
-        for (int rid : rankedRiderIds) {
-            orderedPoints.add(riderPoints.get(rid));
-        }
-
-        return orderedPoints.stream().mapToInt(i -> i).toArray();
+        return getRaceClassification(race).mountainPoints.clone();
     }
 
     /**
@@ -278,11 +591,10 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public int[] getRidersPointClassificationRank(int raceId) throws IDNotRecognisedException {
-        ArrayList<Integer> rankedRiderIds = new ArrayList<>(Arrays.stream(getRidersGeneralClassificationRank(raceId)).boxed().toList());
-        ArrayList<Integer> rankedRidersPoints = new ArrayList<>(Arrays.stream(getRidersPointsInRace(raceId)).boxed().toList());
-        // Same as HashMap just different interface
-        rankedRiderIds.sort(Comparator.comparingInt(rankedRidersPoints::indexOf)); // Check if ide optimisations are good
-        return rankedRiderIds.stream().mapToInt(i -> i).toArray();
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+
+        return getRaceClassification(race).pointsRank.clone();
     }
 
     /**
@@ -301,33 +613,153 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public int[] getRidersMountainPointClassificationRank(int raceId) throws IDNotRecognisedException {
-        int[] raceStageIds = getRaceStages(raceId);
-        Stage[] raceStages = Arrays.stream(raceStageIds).mapToObj(this::getStageByIDOrNull).toArray(Stage[]::new);
-        if (Arrays.stream(raceStages).anyMatch(Objects::isNull)) throw new IDNotRecognisedException();
-
-        // Key riderId. Val Points. Points are accumulated in the loop
-        HashMap<Integer, Integer> riderPointsInRace = new HashMap<>();
-        for (Stage stage : raceStages) {
-            int[] riderIdsRanked = getRidersRankInStage(stage.id);
-            int[] riderPoints = getRidersMountainPointsInStage(stage.id);
-            assert riderIdsRanked.length == riderPoints.length; // If this isn't true then something is catastrophically wrong
-
-            for (int i = 0; i < riderIdsRanked.length; i++) {
-                int rid = riderIdsRanked[i];
-                if (!riderPointsInRace.containsKey(rid)) riderPointsInRace.put(rid, 0);
-                riderPointsInRace.put(
-                        riderIdsRanked[i],
-                        riderPointsInRace.get(rid) + riderPoints[i]
-                );
-            }
-        }
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+
+        return getRaceClassification(race).mountainPointsRank.clone();
+    }
+
+    /**
+     * Get the leaders of the general classification of a race. Only the first n
+     * riders are read from the race's maintained standings, so the cost grows with
+     * n rather than the size of the field.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId The ID of the race being queried.
+     * @param n      The maximum number of riders to return.
+     * @return The first n riders' IDs of {@link #getRidersGeneralClassificationRank(int)},
+     * or all of them if there are fewer than n.
+     * @throws IDNotRecognisedException If the ID does not match any race in the
+     *                                  system.
+     * @throws IllegalArgumentException If n is negative.
+     */
+    public int[] getRidersGeneralClassificationTop(int raceId, int n) throws IDNotRecognisedException {
+        if (n < 0) throw new IllegalArgumentException("n must not be negative");
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+
+        OrderedRanking generalClassification = getRaceStandings(race).generalClassification;
+        int[] top = new int[Math.min(n, generalClassification.size())];
+        for (int i = 0; i < top.length; i++) top[i] = generalClassification.idAt(i);
+        return top;
+    }
 
-        ArrayList<Integer> riderIds = new ArrayList<>(riderPointsInRace.keySet().stream().toList());
-        ArrayList<Integer> riderPoints = new ArrayList<>(riderPointsInRace.values().stream().toList());
+    /**
+     * Get the leaders of the points classification of a race. Only the first n
+     * riders are read from the race's maintained standings.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId The ID of the race being queried.
+     * @param n      The maximum number of riders to return.
+     * @return The first n riders' IDs of {@link #getRidersPointClassificationRank(int)},
+     * or all of them if there are fewer than n.
+     * @throws IDNotRecognisedException If the ID does not match any race in the
+     *                                  system.
+     * @throws IllegalArgumentException If n is negative.
+     */
+    public int[] getRidersPointClassificationTop(int raceId, int n) throws IDNotRecognisedException {
+        return getPointsClassificationTop(raceId, n, false);
+    }
 
-        riderIds.sort(Comparator.comparingInt(riderPoints::indexOf));
+    /**
+     * Get the leaders of the mountain classification of a race. Only the first n
+     * riders are read from the race's maintained standings.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId The ID of the race being queried.
+     * @param n      The maximum number of riders to return.
+     * @return The first n riders' IDs of {@link #getRidersMountainPointClassificationRank(int)},
+     * or all of them if there are fewer than n.
+     * @throws IDNotRecognisedException If the ID does not match any race in the
+     *                                  system.
+     * @throws IllegalArgumentException If n is negative.
+     */
+    public int[] getRidersMountainPointClassificationTop(int raceId, int n) throws IDNotRecognisedException {
+        return getPointsClassificationTop(raceId, n, true);
+    }
+
+    /**
+     * Get a rider's position in the general classification of a race. The position
+     * is looked up in the race's maintained standings in O(log n) time, without
+     * building the full classification.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId  The ID of the race being queried.
+     * @param riderId The ID of the rider.
+     * @return The rider's one based position in
+     * {@link #getRidersGeneralClassificationRank(int)}, or 0 if the rider has no
+     * result in any stage of the race.
+     * @throws IDNotRecognisedException If the ID does not match to any race or
+     *                                  rider in the system.
+     */
+    public int getRiderPositionInGeneralClassification(int raceId, int riderId) throws IDNotRecognisedException {
+        return getRaceStandingsForRider(raceId, riderId).generalClassificationPosition(riderId);
+    }
+
+    /**
+     * Get a rider's position in the points classification of a race, in O(log n)
+     * time.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId  The ID of the race being queried.
+     * @param riderId The ID of the rider.
+     * @return The rider's one based position in
+     * {@link #getRidersPointClassificationRank(int)}, or 0 if the rider has no
+     * result in any stage of the race.
+     * @throws IDNotRecognisedException If the ID does not match to any race or
+     *                                  rider in the system.
+     */
+    public int getRiderPositionInPointClassification(int raceId, int riderId) throws IDNotRecognisedException {
+        return getRaceStandingsForRider(raceId, riderId).pointsClassificationPosition(riderId);
+    }
+
+    /**
+     * Get a rider's position in the mountain classification of a race, in O(log n)
+     * time.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId  The ID of the race being queried.
+     * @param riderId The ID of the rider.
+     * @return The rider's one based position in
+     * {@link #getRidersMountainPointClassificationRank(int)}, or 0 if the rider
+     * has no result in any stage of the race.
+     * @throws IDNotRecognisedException If the ID does not match to any race or
+     *                                  rider in the system.
+     */
+    public int getRiderPositionInMountainPointClassification(int raceId, int riderId) throws IDNotRecognisedException {
+        return getRaceStandingsForRider(raceId, riderId).mountainClassificationPosition(riderId);
+    }
+
+    private RaceStandings getRaceStandingsForRider(int raceId, int riderId) throws IDNotRecognisedException {
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+        if (getRiderByIDOrNull(riderId) == null) throw new IDNotRecognisedException();
+
+        return getRaceStandings(race);
+    }
+
+    private int[] getPointsClassificationTop(int raceId, int n, boolean mountain) throws IDNotRecognisedException {
+        if (n < 0) throw new IllegalArgumentException("n must not be negative");
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
 
-        return riderIds.stream().mapToInt(i -> i).toArray();
+        RaceStandings standings = getRaceStandings(race);
+        OrderedRanking classification = mountain ? standings.mountainClassification : standings.pointsClassification;
+        int[] top = new int[Math.min(n, classification.size())];
+        for (int i = 0; i < top.length; i++) top[i] = classification.idAt(i);
+        return top;
     }
 
     /**
@@ -358,20 +790,38 @@ public class CyclingPortal implements CyclingPortalInterface {
     public int createRace(String name, String description) throws IllegalNameException, InvalidNameException {
         if (name == null || name.equals("") || name.length() > 30) throw new InvalidNameException();
 
-        int currentMaxRaceID = 0;
-        for (Race r : races) {
-            if (r.id > currentMaxRaceID) currentMaxRaceID = r.id;
-            if (r.name.equals(name)) throw new IllegalNameException();
-        }
+        if (raceNames.containsKey(name)) throw new IllegalNameException();
 
         Race newRace = new Race();
-        newRace.id = currentMaxRaceID +1;
-        newRace.name = name;
-        newRace.description = description;
+        newRace.id = races.nextId();
+        newRace.name = strings.intern(name);
+        newRace.description = strings.intern(description);
+        newRace.stageList = children.newList();
         races.add(newRace);
+        raceNames.put(newRace.name, newRace);
+        snapshotChanged(changedRaces, newRace.id);
         return newRace.id;
     }
 
+    /**
+     * Get the ID of a race from its name.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param name The name of the race.
+     * @return The ID of the race.
+     * @throws NameNotRecognisedException If the name does not match to any race in
+     *                                    the system.
+     */
+    public int getRaceIdByName(String name) throws NameNotRecognisedException {
+        Race race = raceNames.get(name);
+        if (race == null) throw new NameNotRecognisedException("Race not found in getRaceIdByName");
+
+        return race.id;
+    }
+
+
     /**
      * Get the details from a race.
      * <p>
@@ -389,8 +839,7 @@ public class CyclingPortal implements CyclingPortalInterface {
     public String viewRaceDetails(int raceId) throws IDNotRecognisedException {
         Race race = getRaceByIDOrNull(raceId);
         if (race == null) throw new IDNotRecognisedException("Race not found in viewRaceDetails");
-        int raceLength = Arrays.stream(getRaceStages(raceId)).sum();
-        return("Race ID: " + race.id + ", Race description: " + race.description + ", Number of stages: " + race.stages.size() + ", Length of race:" + raceLength);
+        return raceDetails(race);
     }
 
     /**
@@ -409,20 +858,15 @@ public class CyclingPortal implements CyclingPortalInterface {
         Race item = getRaceByIDOrNull(raceId);
         if (item == null) throw new IDNotRecognisedException("Race not found in removeRaceByID");
 
-
-        int[] raceStages = getRaceStages(raceId);
-        for (int i : raceStages){
-            int[] stageSegments = getStageSegments(i);
-            for (int j : stageSegments){
-                segments.remove(j);
-            }
-            Rider[] applicableRiders = riders.stream().filter(r -> r.results.containsKey(i)).toArray(Rider[]::new);
-            for (Rider k : applicableRiders){
-                deleteRiderResultsInStage(i, k.id);
-            }
-            stages.remove(i);
-        }
+        removeStagesCascading(children.toArray(item.stageList));
         races.remove(item);
+        children.free(item.stageList);
+        raceNames.remove(item.name);
+        synchronized (cacheLock) {
+            setCached(raceClassificationCache, item.id, null, RaceClassification::estimatedBytes);
+            setCached(raceStandings, item.id, null, RaceStandings::estimatedBytes);
+        }
+        snapshotChanged(changedRaces, item.id);
     }
 
     /**
@@ -441,7 +885,7 @@ public class CyclingPortal implements CyclingPortalInterface {
         Race race = getRaceByIDOrNull(raceId);
         if (race == null) throw new IDNotRecognisedException("Race not found in removeRaceByID");
 
-        return race.stages.size();
+        return children.size(race.stageList);
     }
 
     /**
@@ -472,20 +916,20 @@ public class CyclingPortal implements CyclingPortalInterface {
 
         if (race == null) throw new IDNotRecognisedException();
         if (stageName == null || stageName.equals("") || stageName.length() > 30) throw new InvalidNameException("Name is null, empty or has more than 30 characters");
-        if (stages.stream().anyMatch(s -> Objects.equals(s.name, stageName))) throw new IllegalNameException();
+        if (stageNames.containsKey(stageName)) throw new IllegalNameException();
         if (length < 5) throw new InvalidLengthException();
 
-        Stage newStage = new Stage();
-        newStage.name = stageName; newStage.description = description; newStage.length = length;  newStage.type = type; newStage.startTime = startTime;
-        stages.add(new Stage());
+        StageResults results = new StageResults();
+        results.setOffHeap(resultStorage == ResultStorage.OFF_HEAP);
+        int stageId = stages.add(race.id, strings.intern(stageName), strings.intern(description), length, startTime, type, results);
 
-        int currentMaxStageID = stages.stream().mapToInt(s -> s.id).max().orElse(0);
-        newStage.id = currentMaxStageID + 1;
+        children.add(race.stageList, stageId);
+        race.version++;
+        stageNames.put(strings.intern(stageName), stageId);
+        snapshotChanged(changedStages, stageId);
+        snapshotChanged(changedRaces, race.id);
 
-        race.stages.add(newStage.id);
-        stages.add(newStage);
-
-        return newStage.id;
+        return stageId;
     }
 
     /**
@@ -506,9 +950,76 @@ public class CyclingPortal implements CyclingPortalInterface {
         if (race == null) throw new IDNotRecognisedException();
 
 
-        return race.stages.stream().mapToInt(i->i).toArray();
+        return children.toArray(race.stageList);
+    }
+
+    /**
+     * Get the race a stage belongs to.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @return The ID of the stage's race.
+     * @throws IDNotRecognisedException If the ID does not match to any stage in the
+     *                                  system.
+     */
+    public int getStageRace(int stageId) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return stage.raceId();
+    }
+
+
+    /**
+     * Writes the race's stage IDs, ordered by their sequence in the race, into
+     * {@code out} instead of allocating a new array. If {@code out} is too short only
+     * the first {@code out.length} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId The ID of the race being queried.
+     * @param out    The array to write into, starting at index 0.
+     * @return The number of stage IDs written.
+     * @throws IDNotRecognisedException If the ID does not match any race in the
+     *                                  system.
+     */
+    public int getRaceStages(int raceId, int[] out) throws IDNotRecognisedException {
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+
+        int count = Math.min(children.size(race.stageList), out.length);
+        for (int i = 0; i < count; i++) out[i] = children.get(race.stageList, i);
+        return count;
+    }
+
+    /**
+     * Writes the race's stage IDs, ordered by their sequence in the race, into
+     * {@code out} instead of allocating a new array. If {@code out} has too little room
+     * only the first {@code out.remaining()} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param raceId The ID of the race being queried.
+     * @param out    The buffer to write into, starting at its position, which is
+     *               advanced past the values written.
+     * @return The number of stage IDs written.
+     * @throws IDNotRecognisedException If the ID does not match any race in the
+     *                                  system.
+     */
+    public int getRaceStages(int raceId, IntBuffer out) throws IDNotRecognisedException {
+        Race race = getRaceByIDOrNull(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+
+        int count = Math.min(children.size(race.stageList), out.remaining());
+        for (int i = 0; i < count; i++) out.put(children.get(race.stageList, i));
+        return count;
     }
 
+
     /**
      * Gets the length of a stage in a race, in kilometres.
      * <p>
@@ -524,7 +1035,7 @@ public class CyclingPortal implements CyclingPortalInterface {
     public double getStageLength(int stageId) throws IDNotRecognisedException {
         Stage stage = getStageByIDOrNull(stageId); if (stage == null) throw new IDNotRecognisedException();
 
-        return stage.length;
+        return stage.length();
     }
 
     /**
@@ -542,19 +1053,13 @@ public class CyclingPortal implements CyclingPortalInterface {
         Stage stage = getStageByIDOrNull(stageId);
         if (stage == null) throw new IDNotRecognisedException();
 
-        Race race = races.stream().filter(r -> r.stages.contains(stage.id)).findAny().orElse(null);
+        Race race = getRaceByIDOrNull(stage.raceId());
         if (race == null) {System.out.println("Consistency error. Corrupted data?"); return;}
 
-        race.stages.remove(race.id - 1);
-        stages.remove(stageId -1);
-        int[] stageSegments = getStageSegments(stageId);
-        for (int i : stageSegments){
-            segments.remove(i);
-        }
-        Rider[] applicableRiders = riders.stream().filter(r -> r.results.containsKey(stageId)).toArray(Rider[]::new);
-        for (Rider k : applicableRiders){
-            deleteRiderResultsInStage(stageId, k.id);
-        }
+        removeStagesCascading(new int[]{stage.id});
+        children.removeValue(race.stageList, stage.id);
+        race.version++;
+        snapshotChanged(changedRaces, race.id);
     }
 
     /**
@@ -585,20 +1090,15 @@ public class CyclingPortal implements CyclingPortalInterface {
     public int addCategorizedClimbToStage(int stageId, Double location, SegmentType type, Double averageGradient, Double length) throws IDNotRecognisedException, InvalidLocationException, InvalidStageStateException, InvalidStageTypeException {
         Stage stage = getStageByIDOrNull(stageId);
         if (stage == null) throw new IDNotRecognisedException();
-        if (stage.state != StageState.SETUP) throw new InvalidStageStateException();
-        if (stage.type == StageType.TT) throw new InvalidStageTypeException();
-        if (location > stage.length) throw new InvalidLocationException();
-
-        Segment newSegment = new Segment();
-        newSegment.id = segments.stream().mapToInt(s -> s.id).max().orElse(0) + 1;
-        newSegment.location = location;
-        newSegment.type = type;
-        newSegment.averageGradient = averageGradient;
+        if (stage.state() != StageState.SETUP) throw new InvalidStageStateException();
+        if (stage.type() == StageType.TT) throw new InvalidStageTypeException();
+        if (location > stage.length()) throw new InvalidLocationException();
 
-        segments.add(newSegment);
-        stage.segments.add(newSegment.id);
+        int segmentId = segments.add(stage.id, type, location, averageGradient);
+        stage.addSegment(segmentId);
+        stageChanged(stage);
 
-        return newSegment.id;
+        return segmentId;
     }
 
     /**
@@ -624,19 +1124,15 @@ public class CyclingPortal implements CyclingPortalInterface {
     public int addIntermediateSprintToStage(int stageId, double location) throws IDNotRecognisedException, InvalidLocationException, InvalidStageStateException, InvalidStageTypeException {
         Stage stage = getStageByIDOrNull(stageId);
         if (stage == null) throw new IDNotRecognisedException();
-        if (stage.state != StageState.SETUP) throw new InvalidStageStateException();
-        if (stage.type == StageType.TT) throw new InvalidStageTypeException();
-        if (location > stage.length) throw new InvalidLocationException();
-
-        Segment newSegment = new Segment();
-        newSegment.id = segments.stream().mapToInt(s -> s.id).max().orElse(0) + 1;
-        newSegment.location = location;
-        newSegment.type = SegmentType.SPRINT;
+        if (stage.state() != StageState.SETUP) throw new InvalidStageStateException();
+        if (stage.type() == StageType.TT) throw new InvalidStageTypeException();
+        if (location > stage.length()) throw new InvalidLocationException();
 
-        segments.add(newSegment);
-        stage.segments.add(newSegment.id);
+        int segmentId = segments.add(stage.id, SegmentType.SPRINT, location, 0);
+        stage.addSegment(segmentId);
+        stageChanged(stage);
 
-        return newSegment.id;
+        return segmentId;
     }
 
     /**
@@ -652,14 +1148,14 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public void removeSegment(int segmentId) throws IDNotRecognisedException, InvalidStageStateException {
-        Segment segment = getSegmentByIDOrNull(segmentId);
-        if (segment == null) throw new IDNotRecognisedException();
-        Stage stage = stages.stream().filter(s -> s.segments.contains(segment.id)).findAny().orElse(null);
+        if (!segments.contains(segmentId)) throw new IDNotRecognisedException();
+        Stage stage = getStageByIDOrNull(segments.stageIdOf(segmentId));
         if (stage == null) {System.out.println("Consistency error. Corrupted data?"); return;}
-        if (stage.state == StageState.WAITING_FOR_RESULTS) throw new InvalidStageStateException();
+        if (stage.state() == StageState.WAITING_FOR_RESULTS) throw new InvalidStageStateException();
 
-        segments.remove(segment);
-        stage.segments.remove(stage.segments.stream().filter(sid -> sid == segment.id).findAny().orElse(0)); // Or else will never happen bc we check for consistency earlier
+        segments.remove(segmentId);
+        stage.removeSegment(segmentId);
+        stageChanged(stage);
     }
 
     /**
@@ -678,9 +1174,9 @@ public class CyclingPortal implements CyclingPortalInterface {
     public void concludeStagePreparation(int stageId) throws IDNotRecognisedException, InvalidStageStateException {
         Stage stage = getStageByIDOrNull(stageId);
         if (stage == null) throw new IDNotRecognisedException();
-        if (stage.state == StageState.WAITING_FOR_RESULTS) throw new InvalidStageStateException();
+        if (stage.state() == StageState.WAITING_FOR_RESULTS) throw new InvalidStageStateException();
 
-        stage.state = StageState.WAITING_FOR_RESULTS;
+        stage.setState(StageState.WAITING_FOR_RESULTS);
     }
 
     /**
@@ -700,9 +1196,27 @@ public class CyclingPortal implements CyclingPortalInterface {
         Stage stage = getStageByIDOrNull(stageId);
         if (stage == null) throw new IDNotRecognisedException();
 
-        return stage.segments.stream().mapToInt(i -> i).toArray();
+        return stage.segmentIds();
+    }
+
+    /**
+     * Get the stage a segment belongs to.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param segmentId The ID of the segment being queried.
+     * @return The ID of the segment's stage.
+     * @throws IDNotRecognisedException If the ID does not match to any segment in
+     *                                  the system.
+     */
+    public int getSegmentStage(int segmentId) throws IDNotRecognisedException {
+        if (!segments.contains(segmentId)) throw new IDNotRecognisedException();
+
+        return segments.stageIdOf(segmentId);
     }
 
+
     /**
      * Creates a team with name and description.
      * <p>
@@ -721,23 +1235,35 @@ public class CyclingPortal implements CyclingPortalInterface {
         // Check data
         if (name == null || name.equals("") || name.length() > 30) throw new InvalidNameException("Name is null, empty or has more than 30 characters");
 
-        // Find duplicates and next valid ID
-        int currentMaxTeamID = 0;
-        for (Team t : teams) {
-            if (t.id > currentMaxTeamID) currentMaxTeamID = t.id;
-            if (t.name.equals(name)) throw new IllegalNameException("A Team with the same name already exists");
-        }
+        // Find duplicates
+        if (teamNames.containsKey(name)) throw new IllegalNameException("A Team with the same name already exists");
 
         // Create the team
-        Team newTeam = new Team();
-        newTeam.id = currentMaxTeamID + 1;
-        newTeam.name = name;
-        newTeam.description = description;
+        int teamId = teams.add(strings.intern(name), strings.intern(description));
+        teamNames.put(strings.intern(name), teamId);
+        snapshotChanged(changedTeams, teamId);
+        return teamId;
+    }
+
+    /**
+     * Get the ID of a team from its name.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param name The name of the team.
+     * @return The ID of the team.
+     * @throws NameNotRecognisedException If the name does not match to any team in
+     *                                    the system.
+     */
+    public int getTeamIdByName(String name) throws NameNotRecognisedException {
+        Integer teamId = teamNames.get(name);
+        if (teamId == null) throw new NameNotRecognisedException("Team not found in getTeamIdByName");
 
-        teams.add(newTeam);
-        return newTeam.id;
+        return teamId;
     }
 
+
     /**
      * Removes a team from the system.
      * <p>
@@ -753,8 +1279,9 @@ public class CyclingPortal implements CyclingPortalInterface {
         Team team = getTeamByIDOrNull(teamId);
         if (team == null) throw new IDNotRecognisedException("ID not found in removeTeam");
 
-        teams.remove(teamId - 1);
-
+        teamNames.remove(team.name());
+        teams.remove(team.id);
+        snapshotChanged(changedTeams, team.id);
     }
 
     /**
@@ -768,9 +1295,7 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public int[] getTeams() {
-        return teams.stream()
-                .mapToInt(t -> t.id)
-                .toArray();
+        return teams.ids();
     }
 
 
@@ -790,9 +1315,28 @@ public class CyclingPortal implements CyclingPortalInterface {
         Team team = getTeamByIDOrNull(teamId);
         if (team == null) throw new IDNotRecognisedException("Team ID not found in getTeamRiders");
 
-        return team.riders.stream().mapToInt(r -> r).toArray();
+        return team.riderIds();
     }
 
+    /**
+     * Get the team a rider belongs to.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param riderId The ID of the rider being queried.
+     * @return The ID of the rider's team.
+     * @throws IDNotRecognisedException If the ID does not match to any rider in the
+     *                                  system.
+     */
+    public int getRiderTeam(int riderId) throws IDNotRecognisedException {
+        Rider rider = getRiderByIDOrNull(riderId);
+        if (rider == null) throw new IDNotRecognisedException();
+
+        return rider.teamId;
+    }
+
+
     /**
      * Creates a rider.
      * <p>
@@ -814,17 +1358,61 @@ public class CyclingPortal implements CyclingPortalInterface {
         if (name == null || yearOfBirth < 1900) throw new IllegalArgumentException();
 
         Rider newRider = new Rider();
-        newRider.name = name; newRider.yearOfBirth = yearOfBirth;
+        newRider.name = strings.intern(name); newRider.yearOfBirth = yearOfBirth;
 
-        int maxRiderID = riders.stream().mapToInt(r -> r.id).max().orElse(0);
-        newRider.id = maxRiderID + 1;
-        newRider.results = new HashMap<>();
+        newRider.id = riders.nextId();
+        newRider.teamId = team.id;
 
-        team.riders.add(newRider.id);
+        team.addRider(newRider.id);
         riders.add(newRider);
+        riderBytes.addAndGet(estimatedBytes(newRider));
+        snapshotChanged(changedRiders, newRider.id);
+        snapshotChanged(changedTeams, team.id);
         return newRider.id;
     }
 
+    /**
+     * Creates many riders in one team at once, e.g. when importing a season's
+     * entries. Their IDs are reserved as one consecutive block.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown, so either every rider is created or none are.
+     *
+     * @param teamID       The ID of the team the riders belong to.
+     * @param names        The riders' names.
+     * @param yearsOfBirth The riders' years of birth, in the same order as the names.
+     * @return The IDs of the riders, in the same order as the names.
+     * @throws IDNotRecognisedException If the ID does not match to any team in the
+     *                                  system.
+     * @throws IllegalArgumentException If the arrays have different lengths, or any
+     *                                  name is null or year of birth is less than
+     *                                  1900.
+     */
+    public int[] createRiders(int teamID, String[] names, int[] yearsOfBirth) throws IDNotRecognisedException, IllegalArgumentException {
+        Team team = getTeamByIDOrNull(teamID); if (team == null) throw new IDNotRecognisedException();
+        if (names.length != yearsOfBirth.length) throw new IllegalArgumentException();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null || yearsOfBirth[i] < 1900) throw new IllegalArgumentException();
+        }
+
+        int firstId = riders.reserveIds(names.length);
+        int[] riderIds = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Rider newRider = new Rider();
+            newRider.name = strings.intern(names[i]); newRider.yearOfBirth = yearsOfBirth[i];
+            newRider.id = firstId + i;
+            newRider.teamId = team.id;
+
+            team.addRider(newRider.id);
+            riders.add(newRider);
+            riderBytes.addAndGet(estimatedBytes(newRider));
+            riderIds[i] = newRider.id;
+            snapshotChanged(changedRiders, newRider.id);
+        }
+        snapshotChanged(changedTeams, team.id);
+        return riderIds;
+    }
+
     /**
      * Removes a rider from the system. When a rider is removed from the platform,
      * all of its results should be also removed. Race results must be updated.
@@ -840,11 +1428,21 @@ public class CyclingPortal implements CyclingPortalInterface {
     public void removeRider(int riderId) throws IDNotRecognisedException {
         Rider rider = getRiderByIDOrNull(riderId); if (rider == null) throw new IDNotRecognisedException();
 
-        Team team = teams.stream().filter(t -> t.riders.contains(rider.id)).findAny().orElse(null);
+        Team team = getTeamByIDOrNull(rider.teamId);
         if (team == null) {System.out.println("Consistency error. Corrupted data?"); return;}
 
+        for (int stageId : rider.stages.toArray()) {
+            Stage stage = getStageByIDOrNull(stageId);
+            if (stage != null) {
+                stage.results().remove(rider.id);
+                stageResultsChanged(stage);
+            }
+        }
         riders.remove(rider);
-        team.riders.remove(rider.id - 1);
+        riderBytes.addAndGet(-estimatedBytes(rider));
+        team.removeRider(rider.id);
+        snapshotChanged(changedRiders, rider.id);
+        snapshotChanged(changedTeams, team.id);
     }
 
     /**
@@ -878,11 +1476,18 @@ public class CyclingPortal implements CyclingPortalInterface {
         Stage stage = getStageByIDOrNull(stageId);
         if (rider == null) throw new IDNotRecognisedException("rider ID not recognized");
         if (stage == null) throw new IDNotRecognisedException("stage not recognized");
-        if (rider.results.containsKey(stageId)) throw new DuplicatedResultException("results already exist");
-        if (stage.state != StageState.WAITING_FOR_RESULTS) throw new InvalidStageStateException("invalid stage state");
-        if (checkpoints.length != stage.segments.size() + 2) throw new InvalidCheckpointsException();
-
-        rider.results.put(stageId, checkpoints);
+        if (stage.results().contains(rider.id)) throw new DuplicatedResultException("results already exist");
+        if (stage.state() != StageState.WAITING_FOR_RESULTS) throw new InvalidStageStateException("invalid stage state");
+        if (checkpoints.length != stage.segmentCount() + 2) throw new InvalidCheckpointsException();
+
+        stage.results().add(rider.id, checkpoints);
+        // A rider can have results in several races, which may be being registered at the same time
+        synchronized (rider) {
+            long before = estimatedBytes(rider);
+            rider.stages.add(stage.id);
+            riderBytes.addAndGet(estimatedBytes(rider) - before);
+        }
+        stageResultsChanged(stage);
     }
 
     /**
@@ -905,8 +1510,11 @@ public class CyclingPortal implements CyclingPortalInterface {
     public LocalTime[] getRiderResultsInStage(int stageId, int riderId) throws IDNotRecognisedException {
         Rider rider = getRiderByIDOrNull(riderId);
         if (rider == null) throw new IDNotRecognisedException("Rider ID not found");
-        return rider.results.get(stageId);
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) return null;
 
+        int row = stage.results().rowOf(rider.id);
+        return row < 0 ? null : stage.results().times(row);
     }
 
     /**
@@ -938,32 +1546,10 @@ public class CyclingPortal implements CyclingPortalInterface {
         Rider rider = getRiderByIDOrNull(riderId);
         if (rider == null) throw new IDNotRecognisedException();
 
-        if (!rider.results.containsKey(stageId)) return LocalTime.MIDNIGHT; // WARNING: docstring says to return empty array. The function does not return an array, so I used localtime.MIDNIGHT
-        LocalTime thisRiderFinishTime = rider.results.get(stageId)[rider.results.get(stageId).length - 1];
-        LocalTime thisRiderStartTime = rider.results.get(stageId)[0];
-        if (stage.type == StageType.TT) return LocalTime.MIDNIGHT.plus(Duration.between(thisRiderStartTime, thisRiderFinishTime));
-
-        // If this rider finished this stage less than a second after another rider then return the other rider's time.
-        // This is the adjusted time
-        Rider[] ridersThatTookPartInTheStage = riders.stream().filter(r -> r.results.containsKey(stageId)).toArray(Rider[]::new);
-        // If the rider's time was adjusted then it may now be less than a second after another rider's time.
-        // If so then run the adjustment again until no rider is in range
-        boolean anAdjustmentWasMadeLastIteration = true;
-        while (anAdjustmentWasMadeLastIteration) {
-            for (Rider otherRider : ridersThatTookPartInTheStage) {
-                LocalTime otherRiderFinishTime = otherRider.results.get(stageId)[otherRider.results.get(stageId).length - 1];
-                long differenceBetweenFinishTimes = ChronoUnit.MILLIS.between(otherRiderFinishTime, thisRiderFinishTime);
-
-                if (differenceBetweenFinishTimes < 1000 && differenceBetweenFinishTimes > 0) { // If I finish less than one second after another rider
-                    thisRiderFinishTime = otherRiderFinishTime;
-                    anAdjustmentWasMadeLastIteration = true;
-                } else {
-                    anAdjustmentWasMadeLastIteration = false;
-                }
-            }
-        }
+        if (!stage.results().contains(rider.id)) return LocalTime.MIDNIGHT; // WARNING: docstring says to return empty array. The function does not return an array, so I used localtime.MIDNIGHT
 
-        return LocalTime.MIDNIGHT.plus(Duration.between(thisRiderStartTime, thisRiderFinishTime));
+        StageTimes stageTimes = getStageResult(stage).times;
+        return LocalTime.MIDNIGHT.plusNanos(stageTimes.adjusted[stageTimes.positionOf(rider.id)]);
     }
 
     /**
@@ -982,7 +1568,16 @@ public class CyclingPortal implements CyclingPortalInterface {
         Rider rider = getRiderByIDOrNull(riderId);
         if (rider == null) throw new IDNotRecognisedException("Rider ID not found");
 
-        rider.results.remove(stageId);
+        synchronized (rider) {
+            long before = estimatedBytes(rider);
+            rider.stages.remove(stageId);
+            riderBytes.addAndGet(estimatedBytes(rider) - before);
+        }
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage != null) {
+            stage.results().remove(rider.id);
+            stageResultsChanged(stage);
+        }
     }
 
     /**
@@ -1002,42 +1597,75 @@ public class CyclingPortal implements CyclingPortalInterface {
         Stage stage = getStageByIDOrNull(stageId);
         if (stage == null) throw new IDNotRecognisedException();
 
-        Rider[] applicableRiders = riders.stream().filter(r -> r.results.containsKey(stage.id)).toArray(Rider[]::new);
-
-        HashMap<Long, Rider> results = new HashMap<>();
-        Arrays.stream(applicableRiders).forEach(r -> {
-            LocalTime[] times = r.results.get(stageId);
-            Long time = ChronoUnit.MICROS.between(times[0], times[times.length - 1]);
-
-            // If someone else has the exact same time then increase the time by one microsecond
-            // I shouldn't have to do this, but I don't know any other decent way
-            // I use this form because results.containsKey is always false according to the IDE
-            while (results.containsKey(time)) time++;
+        return getStageResult(stage).riderIds.clone();
+    }
 
-            results.put(time, r);
-        });
+    /**
+     * Writes the riders' IDs, sorted by their elapsed time in the stage, into {@code
+     * out} instead of allocating a new array. If {@code out} is too short only the
+     * first {@code out.length} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param out     The array to write into, starting at index 0.
+     * @return The number of rider IDs written.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public int getRidersRankInStage(int stageId, int[] out) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
 
-        ArrayList<Rider> ridersInOrder = hashMapValuesSortedByComparableKey(results);
-        return ridersInOrder.stream().mapToInt(r -> r.id).toArray();
+        return writeTo(getStageResult(stage).riderIds, out);
     }
 
-    private <Key extends Comparable<? super Key>, O> ArrayList<O> hashMapValuesSortedByComparableKey(HashMap<Key, O> hm) {
-        ArrayList<O> objectsInOrder =  new ArrayList<>();
-        ArrayList<Key> keys = new ArrayList<>(hm.keySet());
-
-        while(keys.size() > 0) {
-            // Find the smallest key
-            Key smallestKey = keys.stream().min(Key::compareTo).orElse(null);
-            keys.remove(smallestKey);
-            objectsInOrder.add(hm.get(smallestKey));
-        }
+    /**
+     * Writes the riders' IDs, sorted by their elapsed time in the stage, into {@code
+     * out} instead of allocating a new array. If {@code out} has too little room
+     * only the first {@code out.remaining()} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param out     The buffer to write into, starting at its position, which is
+     *                advanced past the values written.
+     * @return The number of rider IDs written.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public int getRidersRankInStage(int stageId, IntBuffer out) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
 
-        return objectsInOrder;
+        return writeTo(getStageResult(stage).riderIds, out);
     }
 
 
+    /**
+     * Get the first n finishers of a stage.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param n       The maximum number of riders to return.
+     * @return The first n riders' IDs of {@link #getRidersRankInStage(int)}, or all
+     * of them if there are fewer than n.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     * @throws IllegalArgumentException If n is negative.
+     */
+    public int[] getRidersRankInStageTop(int stageId, int n) throws IDNotRecognisedException {
+        if (n < 0) throw new IllegalArgumentException("n must not be negative");
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
 
-
+        int[] rankedRiderIds = getStageResult(stage).riderIds;
+        return Arrays.copyOf(rankedRiderIds, Math.min(n, rankedRiderIds.length));
+    }
 
     /**
      * Get the adjusted elapsed times of riders in a stage.
@@ -1055,21 +1683,76 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId) throws IDNotRecognisedException {
-        int[] rankedRiderIds = getRidersRankInStage(stageId);
-        // Key: RiderId. Val: Adjusted elapsed times.
-        HashMap<Integer, LocalTime> adjustedTimes = new HashMap<>();
-        for (int rid : rankedRiderIds) {
-            adjustedTimes.put(rid, getRiderAdjustedElapsedTimeInStage(stageId, rid));
-        }
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
 
-        ArrayList<LocalTime> orderedResults = new ArrayList<>();
-        for (int rid : rankedRiderIds) {
-            orderedResults.add(adjustedTimes.get(rid));
-        }
+        return toLocalTimes(getStageResult(stage).adjustedElapsedNanos);
+    }
+
+    /**
+     * Get the adjusted elapsed times of riders in a stage in nanoseconds.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @return The adjusted elapsed times in nanoseconds, in the order of
+     * {@link #getRidersRankInStage(int)}. An empty array if there is no result
+     * for the stage.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public long[] getRankedAdjustedElapsedNanosInStage(int stageId) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return getStageResult(stage).adjustedElapsedNanos.clone();
+    }
+
+    /**
+     * Writes the riders' adjusted elapsed times in the stage, in nanoseconds and in
+     * finishing order, into {@code out} instead of allocating a new array. If {@code
+     * out} is too short only the first {@code out.length} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param out     The array to write into, starting at index 0.
+     * @return The number of riders written.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public int getRankedAdjustedElapsedNanosInStage(int stageId, long[] out) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return writeTo(getStageResult(stage).adjustedElapsedNanos, out);
+    }
 
-        return orderedResults.toArray(LocalTime[]::new);
+    /**
+     * Writes the riders' adjusted elapsed times in the stage, in nanoseconds and in
+     * finishing order, into {@code out} instead of allocating a new array. If {@code
+     * out} has too little room only the first {@code out.remaining()} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param out     The buffer to write into, starting at its position, which is
+     *                advanced past the values written.
+     * @return The number of riders written.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public int getRankedAdjustedElapsedNanosInStage(int stageId, LongBuffer out) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return writeTo(getStageResult(stage).adjustedElapsedNanos, out);
     }
 
+
     /**
      * Get the number of points obtained by each rider in a stage.
      * <p>
@@ -1090,17 +1773,55 @@ public class CyclingPortal implements CyclingPortalInterface {
         Stage stage = getStageByIDOrNull(stageId);
         if (stage == null) throw new IDNotRecognisedException();
 
-        int[] rankedRiderIds = getRidersRankInStage(stageId);
+        return getStageResult(stage).points.clone();
+    }
 
-        ArrayList<Integer> riderPoints = new ArrayList<>();
-        for (int riderIdIndex = 0; riderIdIndex < rankedRiderIds.length; riderIdIndex++) {
-            riderPoints.add(stagePoints(stage.type, riderIdIndex) + getRidersSegmentPointsInStage(stageId, false)[riderIdIndex]);
-        }
-        return riderPoints.stream().mapToInt(i -> i).toArray();
+    /**
+     * Writes the riders' points in the stage, in finishing order, into {@code out}
+     * instead of allocating a new array. If {@code out} is too short only the first
+     * {@code out.length} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param out     The array to write into, starting at index 0.
+     * @return The number of riders written.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public int getRidersPointsInStage(int stageId, int[] out) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return writeTo(getStageResult(stage).points, out);
+    }
+
+    /**
+     * Writes the riders' points in the stage, in finishing order, into {@code out}
+     * instead of allocating a new array. If {@code out} has too little room only the
+     * first {@code out.remaining()} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param out     The buffer to write into, starting at its position, which is
+     *                advanced past the values written.
+     * @return The number of riders written.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public int getRidersPointsInStage(int stageId, IntBuffer out) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return writeTo(getStageResult(stage).points, out);
     }
 
 
 
+
     /**
      * Get the number of mountain points obtained by each rider in a stage.
      * <p>
@@ -1117,65 +1838,266 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public int[] getRidersMountainPointsInStage(int stageId) throws IDNotRecognisedException {
-        return getRidersSegmentPointsInStage(stageId, true);
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return getStageResult(stage).mountainPoints.clone();
+    }
+
+    /**
+     * Writes the riders' mountain points in the stage, in finishing order, into
+     * {@code out} instead of allocating a new array. If {@code out} is too short
+     * only the first {@code out.length} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param out     The array to write into, starting at index 0.
+     * @return The number of riders written.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public int getRidersMountainPointsInStage(int stageId, int[] out) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return writeTo(getStageResult(stage).mountainPoints, out);
+    }
+
+    /**
+     * Writes the riders' mountain points in the stage, in finishing order, into
+     * {@code out} instead of allocating a new array. If {@code out} has too little
+     * room only the first {@code out.remaining()} are written.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @param out     The buffer to write into, starting at its position, which is
+     *                advanced past the values written.
+     * @return The number of riders written.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public int getRidersMountainPointsInStage(int stageId, IntBuffer out) throws IDNotRecognisedException {
+        Stage stage = getStageByIDOrNull(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+
+        return writeTo(getStageResult(stage).mountainPoints, out);
     }
 
-    private int[] getRidersSegmentPointsInStage(int stageId, boolean mountainTrueSprintFalse) throws IDNotRecognisedException {
-        // Should I include the intermediate sprint segment points? NO
+
+    /**
+     * Get the complete scored results of a stage in one call: the riders in finishing
+     * order with their adjusted elapsed times, points and mountain points.
+     * <p>
+     * The state of this MiniCyclingPortalInterface must be unchanged if any
+     * exceptions are thrown.
+     *
+     * @param stageId The ID of the stage being queried.
+     * @return The stage's results. Empty if there is no result for the stage. The
+     * positions match {@link #getRidersRankInStage(int)},
+     * {@link #getRankedAdjustedElapsedTimesInStage(int)},
+     * {@link #getRidersPointsInStage(int)} and
+     * {@link #getRidersMountainPointsInStage(int)}.
+     * @throws IDNotRecognisedException If the ID does not match any stage in the
+     *                                  system.
+     */
+    public StageResult getStageResult(int stageId) throws IDNotRecognisedException {
         Stage stage = getStageByIDOrNull(stageId);
         if (stage == null) throw new IDNotRecognisedException();
 
-        Segment[] segments = stage.segments.stream().map(this::getSegmentByIDOrNull).toArray(Segment[]::new);
-        if (Arrays.stream(segments).anyMatch(Objects::isNull)) throw new IDNotRecognisedException();
-
-        int[] rankedRiderIds = getRidersRankInStage(stageId);
-        Rider[] rankedRiders = Arrays.stream(rankedRiderIds).mapToObj(this::getRiderByIDOrNull).toArray(Rider[]::new);
-        if (Arrays.stream(rankedRiders).anyMatch(Objects::isNull)) throw new IDNotRecognisedException();
-
-        // Foreach segment work out the rank
-        HashMap<Rider, Integer> riderPointsInStage = new HashMap<>();
-        for (int segmentIndex = 0; segmentIndex < segments.length; segmentIndex++) {
-            if (mountainTrueSprintFalse && segments[segmentIndex].type == SegmentType.SPRINT) continue; // TODO Check if it works okay? // Excludes all intermediate sprints
-            if (!mountainTrueSprintFalse && segments[segmentIndex].type != SegmentType.SPRINT) continue;
-
-            HashMap<Duration, Rider> ridersDurationsInASegment = new HashMap<>();
-            for (Rider rider : rankedRiders) {
-                LocalTime[] ridersResults = rider.results.get(stageId);
-                ridersDurationsInASegment.put(
-                        Duration.between(ridersResults[segmentIndex], ridersResults[segmentIndex + 1]),
-                        rider
-                );
+        return getStageResult(stage);
+    }
+
+    // Scores a whole stage in one pass. Each segment is ranked exactly once and its points go to the sprint or mountain
+    // total depending on the segment type
+    private StageResult computeStageResult(Stage stage) throws IDNotRecognisedException {
+        SegmentType[] segmentTypes = new SegmentType[stage.segmentCount()];
+        for (int i = 0; i < segmentTypes.length; i++) {
+            if (!segments.contains(stage.segmentAt(i))) throw new IDNotRecognisedException();
+            segmentTypes[i] = segments.typeOf(stage.segmentAt(i));
+        }
+
+        StageTimes stageTimes = getStageTimes(stage);
+        int riderCount = stageTimes.size();
+        StageResults results = stage.results();
+        // Row of each rider's checkpoints, indexed by finishing position
+        int[] rows = new int[riderCount];
+        for (int position = 0; position < riderCount; position++) {
+            rows[position] = results.rowOf(stageTimes.riderIds[position]);
+        }
+
+        // Both indexed by finishing position in the stage
+        int[] points = new int[riderCount];
+        int[] mountainPoints = new int[riderCount];
+        StageType stageType = stage.type();
+        for (int position = 0; position < riderCount; position++) {
+            points[position] = scoringScheme.stagePoints(stageType, position);
+        }
+
+        long[] segmentTimes = new long[riderCount];
+        int[] stagePositions = new int[riderCount];
+        for (int segmentIndex = 0; segmentIndex < segmentTypes.length; segmentIndex++) {
+            for (int position = 0; position < riderCount; position++) {
+                segmentTimes[position] = results.checkpointNanos(rows[position], segmentIndex + 1) - results.checkpointNanos(rows[position], segmentIndex);
+                stagePositions[position] = position;
             }
-            ArrayList<Rider> ridersRankInASegment = hashMapValuesSortedByComparableKey(ridersDurationsInASegment);
-
-            // Convert a rider's rank into points
-            // Key rider. Value points
-            HashMap<Rider, Integer> riderSegPoints = new HashMap<>();
-            for (int riderRnkSegIndex = 0; riderRnkSegIndex < ridersRankInASegment.size(); riderRnkSegIndex++) {
-                riderSegPoints.put(
-                        ridersRankInASegment.get(riderRnkSegIndex),
-                        segmentPoints(segments[segmentIndex].type, riderRnkSegIndex)
-                );
+            // Riders with the same segment time are ordered by their finishing position in the stage
+            Ranking.sort(segmentTimes, stagePositions, riderCount);
+
+            // Intermediate sprints count towards points, climbs towards mountain points
+            SegmentType type = segmentTypes[segmentIndex];
+            int[] tally = type == SegmentType.SPRINT ? points : mountainPoints;
+            for (int segmentRank = 0; segmentRank < riderCount; segmentRank++) {
+                tally[stagePositions[segmentRank]] += scoringScheme.segmentPoints(type, segmentRank);
             }
+        }
 
-            // riderSegPoints is now representative of each rider's total points in this segment
-            for (Rider rider : riderSegPoints.keySet()) {
-                if (!riderPointsInStage.containsKey(rider)) riderPointsInStage.put(rider, 0);
-                riderPointsInStage.put(rider, riderPointsInStage.get(rider) + riderSegPoints.get(rider));
-            }
+        return new StageResult(stage.id, stage.version(), stageTimes, points, mountainPoints);
+    }
+
+    /**
+     * Reports how many entities and results this portal holds and estimates how much
+     * memory each kind of structure retains. Riders and cached results are kept count
+     * of as they change, so this only looks at each stage's results and otherwise
+     * costs the same however large the portal is. It is cheap enough to call every
+     * few seconds.
+     *
+     * @return The current counts and estimates.
+     */
+    public PortalStats getPortalStats() {
+        long totalCacheBytes;
+        // The caches may be being filled by queries running alongside
+        synchronized (cacheLock) {
+            totalCacheBytes = cacheBytes + stageResultCache.estimatedBytes() + raceClassificationCache.estimatedBytes()
+                    + raceStandings.estimatedBytes();
         }
 
-        // Now we have riderPointsInStage filled out
-        ArrayList<Integer> rankedRiderPoints = new ArrayList<>();
-        for (int riderId : rankedRiderIds) {
-            Rider thisRiderObj = getRiderByIDOrNull(riderId); // Will not be null
-            rankedRiderPoints.add(riderPointsInStage.get(thisRiderObj));
+        long resultBytes = 0, offHeapResultBytes = 0;
+        int[] stageIds = stages.ids();
+        int[] resultCounts = new int[stageIds.length];
+        for (int i = 0; i < stageIds.length; i++) {
+            StageResults results = stages.get(stageIds[i]).results();
+            resultBytes += results.estimatedBytes();
+            offHeapResultBytes += results.offHeapBytes();
+            resultCounts[i] = results.size();
         }
 
-        // Filter out riders with no associated points
-        rankedRiderPoints = new ArrayList<>(rankedRiderPoints.stream().map(p -> p == null ? 0 : p).toList());
+        // A HashMap entry is a node object plus its slot in the table. Team and stage IDs are boxed
+        long nameIndexBytes = 3 * Footprint.ofObject(36)
+                + (long) (teamNames.size() + raceNames.size() + stageNames.size()) * (Footprint.ofObject(4 + 3 * Footprint.REFERENCE) + 2L * Footprint.REFERENCE)
+                + (long) (teamNames.size() + stageNames.size()) * Footprint.ofObject(4);
+
+        return new PortalStats(teams.size(), riders.size(), races.size(), stages.size(), segments.size(),
+                riders.deadCount() + races.deadCount(), stageIds, resultCounts, teams.estimatedBytes(),
+                riders.estimatedBytes() + riderBytes.get(), races.estimatedBytes() + races.size() * RACE_BYTES,
+                stages.estimatedBytes(), segments.estimatedBytes(), children.estimatedBytes(), resultBytes,
+                offHeapResultBytes, nameIndexBytes, totalCacheBytes);
+    }
+
+    /**
+     * The snapshot most recently published by {@link #publishSnapshot()}. Reading it
+     * takes no lock, so any number of threads can query it while the portal is being
+     * changed.
+     *
+     * @return The last published snapshot, empty if none has been published yet.
+     */
+    public PortalSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publishes an immutable snapshot of the portal as it is now, e.g. after a batch
+     * of results has been registered. Only the races, stages, teams and riders changed
+     * since the last snapshot are copied and scored, everything else is shared with
+     * it. The portal must not be changed while this runs.
+     *
+     * @return The newly published snapshot, also returned by {@link #getSnapshot()}.
+     */
+    public PortalSnapshot publishSnapshot() {
+        synchronized (snapshotLock) {
+            PortalSnapshot previous = snapshot;
+            if (snapshotReplaced) {
+                previous = PortalSnapshot.EMPTY;
+                changedRaces = new IntSortedSet();
+                changedStages = new IntSortedSet();
+                changedTeams = new IntSortedSet();
+                changedRiders = new IntSortedSet();
+                for (Race r : races) changedRaces.add(r.id);
+                for (int stageId : stages.ids()) changedStages.add(stageId);
+                for (int teamId : teams.ids()) changedTeams.add(teamId);
+                for (Rider r : riders) changedRiders.add(r.id);
+            }
+
+            PersistentIntMap<PortalSnapshot.StageView> stageViews = previous.stages;
+            for (int i = 0; i < changedStages.size(); i++) {
+                Stage stage = getStageByIDOrNull(changedStages.get(i));
+                if (stage == null) {
+                    stageViews = stageViews.without(changedStages.get(i));
+                    continue;
+                }
+                StageResult result;
+                try {
+                    result = getStageResult(stage);
+                } catch (IDNotRecognisedException e) {
+                    result = null;
+                }
+                stageViews = stageViews.with(stage.id, new PortalSnapshot.StageView(stage.raceId(), stage.length(),
+                        stage.segmentIds(), stage.results().copy(), result));
+            }
+
+            PersistentIntMap<PortalSnapshot.RaceView> raceViews = previous.races;
+            for (int i = 0; i < changedRaces.size(); i++) {
+                Race race = getRaceByIDOrNull(changedRaces.get(i));
+                if (race == null) {
+                    raceViews = raceViews.without(changedRaces.get(i));
+                    continue;
+                }
+                RaceClassification classification;
+                try {
+                    classification = getRaceClassification(race);
+                } catch (IDNotRecognisedException e) {
+                    classification = null;
+                }
+                raceViews = raceViews.with(race.id, new PortalSnapshot.RaceView(raceDetails(race), children.toArray(race.stageList), classification));
+            }
+
+            PersistentIntMap<int[]> teamViews = previous.teams;
+            for (int i = 0; i < changedTeams.size(); i++) {
+                Team team = getTeamByIDOrNull(changedTeams.get(i));
+                teamViews = team == null ? teamViews.without(changedTeams.get(i)) : teamViews.with(team.id, team.riderIds());
+            }
+
+            PersistentIntMap<Integer> riderViews = previous.riders;
+            for (int i = 0; i < changedRiders.size(); i++) {
+                Rider rider = getRiderByIDOrNull(changedRiders.get(i));
+                riderViews = rider == null ? riderViews.without(changedRiders.get(i)) : riderViews.with(rider.id, rider.teamId);
+            }
+
+            changedRaces = new IntSortedSet();
+            changedStages = new IntSortedSet();
+            changedTeams = new IntSortedSet();
+            changedRiders = new IntSortedSet();
+            snapshotReplaced = false;
+
+            snapshot = new PortalSnapshot(raceViews, stageViews, teamViews, riderViews);
+            return snapshot;
+        }
+    }
 
-        return rankedRiderPoints.stream().mapToInt(i -> i).toArray();
+    /**
+     * Squeezes removed riders and races out of the portal's tables, and the space left
+     * by removed or moved child ID lists out of their shared pool. Removing an entity
+     * only marks it dead, and each table compacts itself once more than half of it is
+     * dead, so this is only needed to reclaim the space sooner, e.g. straight after
+     * pruning many riders.
+     */
+    public void compactCyclingPortal() {
+        riders.compact();
+        races.compact();
+        children.compact();
     }
 
     /**
@@ -1184,11 +2106,13 @@ public class CyclingPortal implements CyclingPortalInterface {
      */
     @Override
     public void eraseCyclingPortal() {
-        teams = new ArrayList<>();
-        riders = new ArrayList<>();
-        races = new ArrayList<>();
-        stages = new ArrayList<>();
-        segments = new ArrayList<>();
+        children = new ChildPool();
+        teams = new TeamTable(children);
+        riders = new EntityTable<>();
+        races = new EntityTable<>();
+        stages = new StageTable(children);
+        segments = new SegmentTable();
+        resetDerivedState();
     }
 
     /**
@@ -1230,11 +2154,13 @@ public class CyclingPortal implements CyclingPortalInterface {
         ObjectInputStream objIn = new ObjectInputStream(file);
         CyclingPortal c = (CyclingPortal) objIn.readObject();
 
+        children = c.children;
         teams = c.teams;
         riders = c.riders;
         races = c.races;
         stages = c.stages;
         segments = c.segments;
+        resetDerivedState();
 
         objIn.close();
         file.close();
@@ -0,0 +1,244 @@
+package cycling;
+
+import cycling.types.PersistentIntMap;
+import cycling.types.StageResults;
+import cycling.types.StageTimes;
+
+import java.time.LocalTime;
+
+/**
+ * An immutable copy of what a portal held when it was published, see
+ * {@link CyclingPortal#publishSnapshot()}. It answers every query of
+ * {@link CyclingPortalInterface} that doesn't change the portal, with the same results
+ * and exceptions, without any locking. All of its answers come from the one state it
+ * was published from, whatever happens to the portal afterwards.
+ * <p>
+ * Snapshots share structure. Publishing rebuilds only the races, stages, teams and
+ * riders that changed since the previous snapshot and reuses the rest of it.
+ */
+public final class PortalSnapshot {
+    static final PortalSnapshot EMPTY = new PortalSnapshot(PersistentIntMap.empty(), PersistentIntMap.empty(),
+            PersistentIntMap.empty(), PersistentIntMap.empty());
+
+    final PersistentIntMap<RaceView> races;
+    final PersistentIntMap<StageView> stages;
+    // Team ID to the IDs of its riders
+    final PersistentIntMap<int[]> teams;
+    // Rider ID to the ID of their team
+    final PersistentIntMap<Integer> riders;
+
+    PortalSnapshot(PersistentIntMap<RaceView> races, PersistentIntMap<StageView> stages,
+                   PersistentIntMap<int[]> teams, PersistentIntMap<Integer> riders) {
+        this.races = races;
+        this.stages = stages;
+        this.teams = teams;
+        this.riders = riders;
+    }
+
+    // A race as it was published. The classification is null if it couldn't be computed
+    static final class RaceView {
+        final String details;
+        final int[] stageIds;
+        final RaceClassification classification;
+
+        RaceView(String details, int[] stageIds, RaceClassification classification) {
+            this.details = details;
+            this.stageIds = stageIds;
+            this.classification = classification;
+        }
+    }
+
+    // A stage as it was published, with its own copy of the results. The scored result is null if it couldn't be computed
+    static final class StageView {
+        final int raceId;
+        final double length;
+        final int[] segmentIds;
+        final StageResults results;
+        final StageResult result;
+
+        StageView(int raceId, double length, int[] segmentIds, StageResults results, StageResult result) {
+            this.raceId = raceId;
+            this.length = length;
+            this.segmentIds = segmentIds;
+            this.results = results;
+            this.result = result;
+        }
+    }
+
+    private RaceView race(int raceId) throws IDNotRecognisedException {
+        RaceView race = races.get(raceId);
+        if (race == null) throw new IDNotRecognisedException();
+        return race;
+    }
+
+    private StageView stage(int stageId) throws IDNotRecognisedException {
+        StageView stage = stages.get(stageId);
+        if (stage == null) throw new IDNotRecognisedException();
+        return stage;
+    }
+
+    private RaceClassification classification(int raceId) throws IDNotRecognisedException {
+        RaceClassification classification = race(raceId).classification;
+        if (classification == null) throw new IDNotRecognisedException();
+        return classification;
+    }
+
+    private StageResult stageResult(int stageId) throws IDNotRecognisedException {
+        StageResult result = stage(stageId).result;
+        if (result == null) throw new IDNotRecognisedException();
+        return result;
+    }
+
+    /**
+     * @return The IDs of every race, see {@link CyclingPortalInterface#getRaceIds()}.
+     */
+    public int[] getRaceIds() {
+        return races.keys();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#viewRaceDetails(int)}.
+     */
+    public String viewRaceDetails(int raceId) throws IDNotRecognisedException {
+        return race(raceId).details;
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getNumberOfStages(int)}.
+     */
+    public int getNumberOfStages(int raceId) throws IDNotRecognisedException {
+        return race(raceId).stageIds.length;
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRaceStages(int)}.
+     */
+    public int[] getRaceStages(int raceId) throws IDNotRecognisedException {
+        return race(raceId).stageIds.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getStageLength(int)}.
+     */
+    public double getStageLength(int stageId) throws IDNotRecognisedException {
+        return stage(stageId).length;
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getStageSegments(int)}.
+     */
+    public int[] getStageSegments(int stageId) throws IDNotRecognisedException {
+        return stage(stageId).segmentIds.clone();
+    }
+
+    /**
+     * @return The IDs of every team, see {@link CyclingPortalInterface#getTeams()}.
+     */
+    public int[] getTeams() {
+        return teams.keys();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getTeamRiders(int)}.
+     */
+    public int[] getTeamRiders(int teamId) throws IDNotRecognisedException {
+        int[] riderIds = teams.get(teamId);
+        if (riderIds == null) throw new IDNotRecognisedException();
+        return riderIds.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRiderResultsInStage(int, int)}.
+     */
+    public LocalTime[] getRiderResultsInStage(int stageId, int riderId) throws IDNotRecognisedException {
+        if (!riders.containsKey(riderId)) throw new IDNotRecognisedException();
+        StageView stage = stages.get(stageId);
+        if (stage == null) return null;
+
+        int row = stage.results.rowOf(riderId);
+        return row < 0 ? null : stage.results.times(row);
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRiderAdjustedElapsedTimeInStage(int, int)}.
+     */
+    public LocalTime getRiderAdjustedElapsedTimeInStage(int stageId, int riderId) throws IDNotRecognisedException {
+        StageView stage = stage(stageId);
+        if (!riders.containsKey(riderId)) throw new IDNotRecognisedException();
+
+        if (!stage.results.contains(riderId)) return LocalTime.MIDNIGHT;
+
+        StageTimes stageTimes = stageResult(stageId).times;
+        return LocalTime.MIDNIGHT.plusNanos(stageTimes.adjusted[stageTimes.positionOf(riderId)]);
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRidersRankInStage(int)}.
+     */
+    public int[] getRidersRankInStage(int stageId) throws IDNotRecognisedException {
+        return stageResult(stageId).riderIds.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRankedAdjustedElapsedTimesInStage(int)}.
+     */
+    public LocalTime[] getRankedAdjustedElapsedTimesInStage(int stageId) throws IDNotRecognisedException {
+        return CyclingPortal.toLocalTimes(stageResult(stageId).adjustedElapsedNanos);
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRidersPointsInStage(int)}.
+     */
+    public int[] getRidersPointsInStage(int stageId) throws IDNotRecognisedException {
+        return stageResult(stageId).points.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRidersMountainPointsInStage(int)}.
+     */
+    public int[] getRidersMountainPointsInStage(int stageId) throws IDNotRecognisedException {
+        return stageResult(stageId).mountainPoints.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRidersGeneralClassificationRank(int)}.
+     */
+    public int[] getRidersGeneralClassificationRank(int raceId) throws IDNotRecognisedException {
+        return classification(raceId).riderIds.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getGeneralClassificationTimesInRace(int)}.
+     */
+    public LocalTime[] getGeneralClassificationTimesInRace(int raceId) throws IDNotRecognisedException {
+        return CyclingPortal.toLocalTimes(classification(raceId).adjustedElapsedNanos);
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRidersPointsInRace(int)}.
+     */
+    public int[] getRidersPointsInRace(int raceId) throws IDNotRecognisedException {
+        return classification(raceId).points.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRidersMountainPointsInRace(int)}.
+     */
+    public int[] getRidersMountainPointsInRace(int raceId) throws IDNotRecognisedException {
+        return classification(raceId).mountainPoints.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRidersPointClassificationRank(int)}.
+     */
+    public int[] getRidersPointClassificationRank(int raceId) throws IDNotRecognisedException {
+        return classification(raceId).pointsRank.clone();
+    }
+
+    /**
+     * See {@link CyclingPortalInterface#getRidersMountainPointClassificationRank(int)}.
+     */
+    public int[] getRidersMountainPointClassificationRank(int raceId) throws IDNotRecognisedException {
+        return classification(raceId).mountainPointsRank.clone();
+    }
+}
@@ -0,0 +1,189 @@
+package cycling;
+
+/**
+ * A point in time report of what a portal holds and roughly how much memory each part
+ * of it takes, see {@link CyclingPortal#getPortalStats()}.
+ * <p>
+ * Byte counts are estimates of retained heap for a 64 bit JVM with compressed
+ * references. Names and descriptions are not included as they are shared through a
+ * string pool. Instances are immutable. The getters return copies.
+ */
+public final class PortalStats {
+    final int teamCount;
+    final int riderCount;
+    final int raceCount;
+    final int stageCount;
+    final int segmentCount;
+    final int removedEntityCount;
+    final int[] stageIds;
+    final int[] resultCounts;
+
+    final long teamBytes;
+    final long riderBytes;
+    final long raceBytes;
+    final long stageBytes;
+    final long segmentBytes;
+    final long childListBytes;
+    final long resultBytes;
+    final long offHeapResultBytes;
+    final long nameIndexBytes;
+    final long cacheBytes;
+
+    PortalStats(int teamCount, int riderCount, int raceCount, int stageCount, int segmentCount, int removedEntityCount,
+                int[] stageIds, int[] resultCounts, long teamBytes, long riderBytes, long raceBytes, long stageBytes,
+                long segmentBytes, long childListBytes, long resultBytes, long offHeapResultBytes, long nameIndexBytes,
+                long cacheBytes) {
+        this.teamCount = teamCount;
+        this.riderCount = riderCount;
+        this.raceCount = raceCount;
+        this.stageCount = stageCount;
+        this.segmentCount = segmentCount;
+        this.removedEntityCount = removedEntityCount;
+        this.stageIds = stageIds;
+        this.resultCounts = resultCounts;
+        this.teamBytes = teamBytes;
+        this.riderBytes = riderBytes;
+        this.raceBytes = raceBytes;
+        this.stageBytes = stageBytes;
+        this.segmentBytes = segmentBytes;
+        this.childListBytes = childListBytes;
+        this.resultBytes = resultBytes;
+        this.offHeapResultBytes = offHeapResultBytes;
+        this.nameIndexBytes = nameIndexBytes;
+        this.cacheBytes = cacheBytes;
+    }
+
+    public int getTeamCount() {
+        return teamCount;
+    }
+
+    public int getRiderCount() {
+        return riderCount;
+    }
+
+    public int getRaceCount() {
+        return raceCount;
+    }
+
+    public int getStageCount() {
+        return stageCount;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return The number of removed riders and races whose slots have not been
+     * compacted yet.
+     */
+    public int getRemovedEntityCount() {
+        return removedEntityCount;
+    }
+
+    /**
+     * @return The IDs of every stage, in the same order as {@link #getResultCounts()}.
+     */
+    public int[] getStageIds() {
+        return stageIds.clone();
+    }
+
+    /**
+     * @return The number of riders with results in each stage, in the same order as
+     * {@link #getStageIds()}.
+     */
+    public int[] getResultCounts() {
+        return resultCounts.clone();
+    }
+
+    /**
+     * @return The total number of results registered across all stages.
+     */
+    public long getTotalResultCount() {
+        long total = 0;
+        for (int count : resultCounts) total += count;
+        return total;
+    }
+
+    /**
+     * @return Estimated bytes of the team table.
+     */
+    public long getTeamBytes() {
+        return teamBytes;
+    }
+
+    /**
+     * @return Estimated bytes of the riders, their table and the sets of stages each
+     * has results in.
+     */
+    public long getRiderBytes() {
+        return riderBytes;
+    }
+
+    /**
+     * @return Estimated bytes of the races and their table.
+     */
+    public long getRaceBytes() {
+        return raceBytes;
+    }
+
+    /**
+     * @return Estimated bytes of the stage table, not counting results.
+     */
+    public long getStageBytes() {
+        return stageBytes;
+    }
+
+    /**
+     * @return Estimated bytes of the segment table.
+     */
+    public long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * @return Estimated bytes of the pool holding the rider IDs of every team and the
+     * stage and segment IDs of every race and stage.
+     */
+    public long getChildListBytes() {
+        return childListBytes;
+    }
+
+    /**
+     * @return Estimated heap bytes of every stage's results.
+     */
+    public long getResultBytes() {
+        return resultBytes;
+    }
+
+    /**
+     * @return Bytes of native memory holding checkpoint times when results are kept
+     * off the heap, otherwise 0.
+     */
+    public long getOffHeapResultBytes() {
+        return offHeapResultBytes;
+    }
+
+    /**
+     * @return Estimated bytes of the indexes from names to races, stages and teams.
+     */
+    public long getNameIndexBytes() {
+        return nameIndexBytes;
+    }
+
+    /**
+     * @return Estimated bytes of cached stage results, race classifications and race
+     * standings. These can be dropped and recomputed at any time.
+     */
+    public long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    /**
+     * @return The sum of all the heap estimates above.
+     */
+    public long getTotalHeapBytes() {
+        return teamBytes + riderBytes + raceBytes + stageBytes + segmentBytes + childListBytes + resultBytes + nameIndexBytes
+                + cacheBytes;
+    }
+}
@@ -0,0 +1,37 @@
+package cycling;
+
+import cycling.types.Footprint;
+
+/**
+ * The general, points and mountain classifications of a race, computed together in one
+ * pass over the race's stages. The rider, time and points arrays are in general
+ * classification order.
+ */
+final class RaceClassification {
+    final int raceId;
+    // Version of the race this classification was computed from
+    final int raceVersion;
+    final int[] riderIds;
+    final long[] adjustedElapsedNanos;
+    final int[] points;
+    final int[] mountainPoints;
+    final int[] pointsRank;
+    final int[] mountainPointsRank;
+
+    RaceClassification(int raceId, int raceVersion, int[] riderIds, long[] adjustedElapsedNanos, int[] points, int[] mountainPoints, int[] pointsRank, int[] mountainPointsRank) {
+        this.raceId = raceId;
+        this.raceVersion = raceVersion;
+        this.riderIds = riderIds;
+        this.adjustedElapsedNanos = adjustedElapsedNanos;
+        this.points = points;
+        this.mountainPoints = mountainPoints;
+        this.pointsRank = pointsRank;
+        this.mountainPointsRank = mountainPointsRank;
+    }
+
+    // Estimated heap bytes
+    long estimatedBytes() {
+        return Footprint.ofObject(8 + 6 * Footprint.REFERENCE) + 5 * Footprint.ofArray(riderIds.length, 4)
+                + Footprint.ofArray(riderIds.length, 8);
+    }
+}
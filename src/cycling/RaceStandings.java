@@ -0,0 +1,122 @@
+package cycling;
+
+import cycling.types.Footprint;
+import cycling.types.IntObjectMap;
+import cycling.types.OrderedRanking;
+
+/**
+ * Running totals of every rider in a race, kept up to date one stage at a time. When a
+ * stage's results change only that stage's contribution is taken off and the new one
+ * added, and only riders whose totals moved are re-positioned in the classifications.
+ * <p>
+ * The general classification is ordered by time then rider ID. The points and mountain
+ * classifications are ordered by most points, with ties in general classification
+ * order (time then rider ID).
+ */
+final class RaceStandings {
+    private static final int TIME = 0, POINTS = 1, MOUNTAIN_POINTS = 2, STAGES = 3;
+
+    // Version of the race these standings are up to date with
+    int raceVersion;
+    final OrderedRanking generalClassification = new OrderedRanking();
+    final OrderedRanking pointsClassification = new OrderedRanking();
+    final OrderedRanking mountainClassification = new OrderedRanking();
+
+    // Value is {adjusted elapsed time, points, mountain points, number of stages with a result}
+    private final IntObjectMap<long[]> totals = new IntObjectMap<>();
+    // The stage results currently counted in the totals
+    private final IntObjectMap<StageResult> counted = new IntObjectMap<>();
+
+    RaceStandings(int raceVersion) {
+        this.raceVersion = raceVersion;
+    }
+
+    int size() {
+        return generalClassification.size();
+    }
+
+    // {adjusted elapsed time, points, mountain points, number of stages} or null if the rider has no results
+    long[] totalsOf(int riderId) {
+        return totals.get(riderId);
+    }
+
+    // One based positions of the rider in each classification, or 0 if they have no results in the race
+    int generalClassificationPosition(int riderId) {
+        long[] riderTotals = totals.get(riderId);
+        if (riderTotals == null) return 0;
+        return generalClassification.positionOf(riderTotals[TIME], 0, riderId) + 1;
+    }
+
+    int pointsClassificationPosition(int riderId) {
+        long[] riderTotals = totals.get(riderId);
+        if (riderTotals == null) return 0;
+        return pointsClassification.positionOf(-riderTotals[POINTS], riderTotals[TIME], riderId) + 1;
+    }
+
+    int mountainClassificationPosition(int riderId) {
+        long[] riderTotals = totals.get(riderId);
+        if (riderTotals == null) return 0;
+        return mountainClassification.positionOf(-riderTotals[MOUNTAIN_POINTS], riderTotals[TIME], riderId) + 1;
+    }
+
+    // Replaces what the stage contributes to the totals. A null result removes the stage
+    void applyStage(int stageId, StageResult result) {
+        StageResult old = result == null ? counted.remove(stageId) : counted.put(stageId, result);
+
+        if (old != null) {
+            for (int i = 0; i < old.riderIds.length; i++) {
+                int position = result == null ? -1 : result.times.positionOf(old.riderIds[i]);
+                if (position < 0) {
+                    adjust(old.riderIds[i], -old.adjustedElapsedNanos[i], -old.points[i], -old.mountainPoints[i], -1);
+                } else {
+                    adjust(old.riderIds[i],
+                            result.adjustedElapsedNanos[position] - old.adjustedElapsedNanos[i],
+                            result.points[position] - old.points[i],
+                            result.mountainPoints[position] - old.mountainPoints[i],
+                            0);
+                }
+            }
+        }
+        if (result != null) {
+            for (int i = 0; i < result.riderIds.length; i++) {
+                if (old != null && old.times.positionOf(result.riderIds[i]) >= 0) continue; // Already counted above
+                adjust(result.riderIds[i], result.adjustedElapsedNanos[i], result.points[i], result.mountainPoints[i], 1);
+            }
+        }
+    }
+
+    private void adjust(int riderId, long time, long points, long mountainPoints, int stages) {
+        if (time == 0 && points == 0 && mountainPoints == 0 && stages == 0) return;
+
+        long[] riderTotals = totals.get(riderId);
+        if (riderTotals == null) {
+            riderTotals = new long[4];
+            totals.put(riderId, riderTotals);
+        } else {
+            generalClassification.remove(riderTotals[TIME], 0, riderId);
+            pointsClassification.remove(-riderTotals[POINTS], riderTotals[TIME], riderId);
+            mountainClassification.remove(-riderTotals[MOUNTAIN_POINTS], riderTotals[TIME], riderId);
+        }
+
+        riderTotals[TIME] += time;
+        riderTotals[POINTS] += points;
+        riderTotals[MOUNTAIN_POINTS] += mountainPoints;
+        riderTotals[STAGES] += stages;
+
+        if (riderTotals[STAGES] == 0) {
+            totals.remove(riderId);
+        } else {
+            generalClassification.add(riderTotals[TIME], 0, riderId);
+            pointsClassification.add(-riderTotals[POINTS], riderTotals[TIME], riderId);
+            mountainClassification.add(-riderTotals[MOUNTAIN_POINTS], riderTotals[TIME], riderId);
+        }
+    }
+
+    // Estimated heap bytes, not counting the stage results, which are owned by the stage result cache
+    long estimatedBytes() {
+        long riderTotals = size() * Footprint.ofArray(4, 8);
+        return Footprint.ofObject(4 + 5 * Footprint.REFERENCE) + generalClassification.estimatedBytes()
+                + pointsClassification.estimatedBytes() + mountainClassification.estimatedBytes()
+                + totals.estimatedBytes() + riderTotals + counted.estimatedBytes();
+    }
+}
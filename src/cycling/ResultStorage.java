@@ -0,0 +1,21 @@
+package cycling;
+
+/**
+ * Where a portal keeps the checkpoint times of riders' results.
+ */
+public enum ResultStorage {
+
+    /**
+     * In Java arrays on the heap. The default.
+     */
+    HEAP,
+
+    /**
+     * In native memory outside the heap, for portals holding many seasons of results.
+     * Only the rider IDs used to find each result stay on the heap. The native memory
+     * of removed or erased results is freed when the garbage collector collects them,
+     * not straight away.
+     */
+    OFF_HEAP;
+
+}
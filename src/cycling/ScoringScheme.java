@@ -0,0 +1,27 @@
+package cycling;
+
+/**
+ * The points awarded for finishing positions in stages and segments. A portal scores
+ * every stage with one scheme, see {@link CyclingPortal#CyclingPortal(ScoringScheme)}.
+ * <p>
+ * Implementations are called once per rider per stage and segment while scoring, so
+ * they should not allocate.
+ */
+public interface ScoringScheme {
+
+    /**
+     * @param stageType The type of the stage.
+     * @param rank      The rider's zero based finishing position in the stage.
+     * @return The points awarded, 0 if none.
+     */
+    int stagePoints(StageType stageType, int rank);
+
+    /**
+     * @param segmentType The type of the segment. Points for sprints count towards
+     *                    the points classification, points for climbs towards the
+     *                    mountain classification.
+     * @param rank        The rider's zero based position in the segment.
+     * @return The points awarded, 0 if none.
+     */
+    int segmentPoints(SegmentType segmentType, int rank);
+}
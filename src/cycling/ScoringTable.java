@@ -0,0 +1,78 @@
+package cycling;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A {@link ScoringScheme} read from fixed tables of points, one per stage type and
+ * segment type. Position i of a table is the points for rank i, and ranks past the end
+ * of a table score 0. Types without a table score 0 for every rank.
+ * <p>
+ * Instances are immutable, the tables are copied when the scheme is built.
+ */
+public final class ScoringTable implements ScoringScheme {
+    private static final int[] NO_POINTS = new int[0];
+
+    /**
+     * The points used by the Tour de France, and the default for a new portal.
+     */
+    public static final ScoringTable TOUR_DE_FRANCE;
+
+    static {
+        Map<StageType, int[]> stagePoints = new EnumMap<>(StageType.class);
+        stagePoints.put(StageType.FLAT,            new int[]{50, 30, 20, 18, 16, 14, 12, 10, 8, 7, 6, 5, 4, 3, 2});
+        stagePoints.put(StageType.MEDIUM_MOUNTAIN, new int[]{30, 25, 22, 19, 17, 15, 13, 11, 9, 7, 6, 5, 4, 3, 2});
+        stagePoints.put(StageType.HIGH_MOUNTAIN,   new int[]{20, 17, 15, 13, 11, 10,  9,  8, 7, 6, 5, 4, 3, 2, 1});
+        stagePoints.put(StageType.TT,              new int[]{20, 17, 15, 13, 11, 10,  9,  8, 7, 6, 5, 4, 3, 2, 1});
+
+        Map<SegmentType, int[]> segmentPoints = new EnumMap<>(SegmentType.class);
+        segmentPoints.put(SegmentType.SPRINT, new int[]{20, 17, 15, 13, 11, 10,  9,  8, 7, 6, 5, 4, 3, 2, 1});
+        segmentPoints.put(SegmentType.HC,     new int[]{20, 15, 12, 10,  8,  6,  4,  2});
+        segmentPoints.put(SegmentType.C1,     new int[]{10,  8,  6,  4,  2,  1});
+        segmentPoints.put(SegmentType.C2,     new int[]{ 5,  3,  2,  1});
+        segmentPoints.put(SegmentType.C3,     new int[]{ 2,  1});
+        segmentPoints.put(SegmentType.C4,     new int[]{ 1});
+
+        TOUR_DE_FRANCE = new ScoringTable(stagePoints, segmentPoints);
+    }
+
+    private final EnumMap<StageType, int[]> stagePoints = new EnumMap<>(StageType.class);
+    private final EnumMap<SegmentType, int[]> segmentPoints = new EnumMap<>(SegmentType.class);
+
+    /**
+     * @param stagePoints   Points by finishing position for each stage type.
+     * @param segmentPoints Points by finishing position for each segment type.
+     * @throws IllegalArgumentException If a table is null or contains negative points.
+     */
+    public ScoringTable(Map<StageType, int[]> stagePoints, Map<SegmentType, int[]> segmentPoints) {
+        for (StageType type : StageType.values()) {
+            this.stagePoints.put(type, copyOf(stagePoints.get(type), stagePoints.containsKey(type)));
+        }
+        for (SegmentType type : SegmentType.values()) {
+            this.segmentPoints.put(type, copyOf(segmentPoints.get(type), segmentPoints.containsKey(type)));
+        }
+    }
+
+    @Override
+    public int stagePoints(StageType stageType, int rank) {
+        return pointsAt(stagePoints.get(stageType), rank);
+    }
+
+    @Override
+    public int segmentPoints(SegmentType segmentType, int rank) {
+        return pointsAt(segmentPoints.get(segmentType), rank);
+    }
+
+    private static int pointsAt(int[] table, int rank) {
+        return rank >= 0 && rank < table.length ? table[rank] : 0;
+    }
+
+    private static int[] copyOf(int[] table, boolean present) {
+        if (!present) return NO_POINTS;
+        if (table == null) throw new IllegalArgumentException("Points table must not be null");
+        for (int points : table) {
+            if (points < 0) throw new IllegalArgumentException("Points must not be negative");
+        }
+        return table.clone();
+    }
+}
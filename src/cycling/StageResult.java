@@ -0,0 +1,91 @@
+package cycling;
+
+import cycling.types.Footprint;
+import cycling.types.StageTimes;
+
+import java.time.LocalTime;
+
+/**
+ * The scored results of a stage. Every array is in finishing order, so position 0 is
+ * the stage winner, and the positions line up with
+ * {@link CyclingPortalInterface#getRidersRankInStage(int)}.
+ * <p>
+ * Instances are immutable. The getters return copies.
+ */
+public final class StageResult {
+    final int stageId;
+    // Version of the stage these results were computed from
+    final int stageVersion;
+    final StageTimes times;
+    final int[] riderIds;
+    final long[] adjustedElapsedNanos;
+    final int[] points;
+    final int[] mountainPoints;
+
+    StageResult(int stageId, int stageVersion, StageTimes times, int[] points, int[] mountainPoints) {
+        this.stageId = stageId;
+        this.stageVersion = stageVersion;
+        this.times = times;
+        this.riderIds = times.riderIds;
+        this.adjustedElapsedNanos = times.adjusted;
+        this.points = points;
+        this.mountainPoints = mountainPoints;
+    }
+
+    /**
+     * @return The ID of the stage these results belong to.
+     */
+    public int getStageId() {
+        return stageId;
+    }
+
+    /**
+     * @return The number of riders with a result in the stage.
+     */
+    public int size() {
+        return riderIds.length;
+    }
+
+    /**
+     * @return The riders' IDs sorted by their elapsed time.
+     */
+    public int[] getRiderIds() {
+        return riderIds.clone();
+    }
+
+    /**
+     * @return The riders' adjusted elapsed times, in finishing order.
+     */
+    public LocalTime[] getAdjustedElapsedTimes() {
+        LocalTime[] times = new LocalTime[adjustedElapsedNanos.length];
+        for (int i = 0; i < times.length; i++) times[i] = LocalTime.MIDNIGHT.plusNanos(adjustedElapsedNanos[i]);
+        return times;
+    }
+
+    /**
+     * @return The riders' adjusted elapsed times in nanoseconds, in finishing order.
+     */
+    public long[] getAdjustedElapsedNanos() {
+        return adjustedElapsedNanos.clone();
+    }
+
+    /**
+     * @return The points each rider received in the stage, including intermediate
+     * sprints, in finishing order.
+     */
+    public int[] getPoints() {
+        return points.clone();
+    }
+
+    /**
+     * @return The mountain points each rider received in the stage, in finishing order.
+     */
+    public int[] getMountainPoints() {
+        return mountainPoints.clone();
+    }
+
+    // Estimated heap bytes
+    long estimatedBytes() {
+        return Footprint.ofObject(8 + 6 * Footprint.REFERENCE) + times.estimatedBytes() + 2 * Footprint.ofArray(points.length, 4);
+    }
+}
@@ -0,0 +1,151 @@
+package cycling.types;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The child ID lists of every team, race and stage, kept as slices of one shared int
+ * array. A list is just a handle into the per-list columns below, so it costs 12 bytes
+ * plus its elements, with no object of its own.
+ * <p>
+ * A list that outgrows its slice is moved to a slice twice the size at the end of the
+ * array, unless it is already the last slice and can grow in place. The space it left
+ * behind is garbage, and once that is more than half of what is in use every list is
+ * packed back together.
+ */
+public class ChildPool implements Serializable {
+    // Below this many ints of garbage packing isn't worth it
+    private static final int MIN_GARBAGE_TO_COMPACT = 256;
+
+    private int[] values = new int[64];
+    // Ints of values in use, slices of live lists or garbage
+    private int used;
+    private int garbage;
+
+    // Indexed by handle. Handle 0 is never handed out so that it can mean no list
+    private int[] starts = new int[16];
+    private int[] sizes = new int[16];
+    // -1 for a freed handle, which is then chained to the next freed one through its start
+    private int[] capacities = new int[16];
+    private int lastHandle;
+    private int firstFree;
+
+    // Returns the handle of a new empty list
+    public int newList() {
+        int handle;
+        if (firstFree != 0) {
+            handle = firstFree;
+            firstFree = starts[handle];
+        } else {
+            handle = ++lastHandle;
+            if (handle == starts.length) {
+                starts = Arrays.copyOf(starts, handle * 2);
+                sizes = Arrays.copyOf(sizes, handle * 2);
+                capacities = Arrays.copyOf(capacities, handle * 2);
+            }
+        }
+        // Empty lists take no space until something is added
+        starts[handle] = used;
+        sizes[handle] = 0;
+        capacities[handle] = 0;
+        return handle;
+    }
+
+    // Releases the list's slice, the handle may be handed out again
+    public void free(int handle) {
+        garbage += capacities[handle];
+        sizes[handle] = 0;
+        capacities[handle] = -1;
+        starts[handle] = firstFree;
+        firstFree = handle;
+    }
+
+    public int size(int handle) {
+        return sizes[handle];
+    }
+
+    public int get(int handle, int index) {
+        if (index >= sizes[handle]) throw new IndexOutOfBoundsException(index);
+        return values[starts[handle] + index];
+    }
+
+    public int indexOf(int handle, int value) {
+        int start = starts[handle];
+        for (int i = 0; i < sizes[handle]; i++) {
+            if (values[start + i] == value) return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(int handle, int value) {
+        return indexOf(handle, value) >= 0;
+    }
+
+    public void add(int handle, int value) {
+        int size = sizes[handle];
+        if (size == capacities[handle]) grow(handle);
+        values[starts[handle] + size] = value;
+        sizes[handle] = size + 1;
+    }
+
+    // Removes the first occurrence of the value, keeping the order of the rest
+    public boolean removeValue(int handle, int value) {
+        int index = indexOf(handle, value);
+        if (index < 0) return false;
+
+        int start = starts[handle];
+        System.arraycopy(values, start + index + 1, values, start + index, sizes[handle] - index - 1);
+        sizes[handle]--;
+        return true;
+    }
+
+    public int[] toArray(int handle) {
+        return Arrays.copyOfRange(values, starts[handle], starts[handle] + sizes[handle]);
+    }
+
+    private void grow(int handle) {
+        if (garbage >= MIN_GARBAGE_TO_COMPACT && garbage > used / 2) compact();
+
+        int capacity = capacities[handle];
+        int newCapacity = Math.max(4, capacity * 2);
+        boolean last = starts[handle] + capacity == used;
+        int needed = (last ? starts[handle] : used) + newCapacity;
+        if (needed > values.length) values = Arrays.copyOf(values, Math.max(needed, values.length * 2));
+
+        if (last) {
+            used = starts[handle] + newCapacity;
+        } else {
+            System.arraycopy(values, starts[handle], values, used, sizes[handle]);
+            garbage += capacity;
+            starts[handle] = used;
+            used += newCapacity;
+        }
+        capacities[handle] = newCapacity;
+    }
+
+    // Packs every live list's elements together, leaving each exactly as large as it is
+    public void compact() {
+        if (garbage == 0) return;
+
+        int live = 0;
+        for (int handle = 1; handle <= lastHandle; handle++) live += sizes[handle];
+        int[] packed = new int[Math.max(64, live)];
+        int next = 0;
+        for (int handle = 1; handle <= lastHandle; handle++) {
+            if (capacities[handle] < 0) continue;
+            System.arraycopy(values, starts[handle], packed, next, sizes[handle]);
+            starts[handle] = next;
+            capacities[handle] = sizes[handle];
+            next += sizes[handle];
+        }
+        values = packed;
+        used = next;
+        garbage = 0;
+    }
+
+    // Estimated heap bytes
+    public long estimatedBytes() {
+        return Footprint.ofObject(16 + 4 * Footprint.REFERENCE) + Footprint.ofArray(values.length, 4)
+                + 3 * Footprint.ofArray(starts.length, 4);
+    }
+}
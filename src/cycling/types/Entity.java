@@ -0,0 +1,12 @@
+package cycling.types;
+
+import java.io.Serializable;
+
+/**
+ * Anything stored in an {@link EntityTable}: riders and races.
+ */
+public abstract class Entity implements Serializable {
+    public int id;
+    // Position in the table holding this entity, kept up to date by the table
+    transient int slot;
+}
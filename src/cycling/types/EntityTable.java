@@ -0,0 +1,117 @@
+package cycling.types;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Every entity of one kind, e.g. every rider, with an index from ID to entity.
+ * <p>
+ * Removing an entity only marks its slot dead, which is O(1) however many entities
+ * there are, and iteration skips dead slots. Dead slots are squeezed out by
+ * {@link #compact()}, which also runs by itself once more than half the slots are dead,
+ * so removal stays amortised O(1) without the table growing forever.
+ * <p>
+ * The table also hands out IDs for its entities from a counter that is saved with it.
+ * IDs are never reused, even once their entity has been removed.
+ */
+public class EntityTable<T extends Entity> implements Serializable, Iterable<T> {
+    // Below this many dead slots compacting isn't worth it
+    private static final int MIN_DEAD_TO_COMPACT = 32;
+
+    // Null where an entity was removed
+    private ArrayList<T> slots = new ArrayList<>();
+    private int dead;
+    // The last ID handed out
+    private final AtomicInteger lastId = new AtomicInteger();
+    // Not serialised, rebuilt from the slots on load
+    private transient IntObjectMap<T> index = new IntObjectMap<>();
+
+    // Number of live entities
+    public int size() {
+        return slots.size() - dead;
+    }
+
+    // Number of removed entities still taking up a slot
+    public int deadCount() {
+        return dead;
+    }
+
+    public int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    // Hands out count consecutive IDs at once and returns the first of them
+    public int reserveIds(int count) {
+        if (count < 0) throw new IllegalArgumentException("count must not be negative");
+        return lastId.getAndAdd(count) + 1;
+    }
+
+    // The entity with the ID or null if there is none
+    public T get(int id) {
+        return index.get(id);
+    }
+
+    public void add(T entity) {
+        entity.slot = slots.size();
+        slots.add(entity);
+        index.put(entity.id, entity);
+    }
+
+    // Returns false if the entity isn't in this table
+    public boolean remove(T entity) {
+        if (index.get(entity.id) != entity) return false;
+
+        index.remove(entity.id);
+        slots.set(entity.slot, null);
+        dead++;
+        if (dead >= MIN_DEAD_TO_COMPACT && dead > slots.size() / 2) compact();
+        return true;
+    }
+
+    // Rewrites the slots without the dead ones
+    public void compact() {
+        if (dead == 0) return;
+
+        ArrayList<T> live = new ArrayList<>(size());
+        for (T entity : slots) {
+            if (entity == null) continue;
+            entity.slot = live.size();
+            live.add(entity);
+        }
+        slots = live;
+        dead = 0;
+    }
+
+    public Stream<T> stream() {
+        return slots.stream().filter(Objects::nonNull);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return stream().iterator();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        compact();
+        index = new IntObjectMap<>();
+        for (int slot = 0; slot < slots.size(); slot++) {
+            slots.get(slot).slot = slot;
+            index.put(slots.get(slot).id, slots.get(slot));
+            // Never hand out an ID that is already taken, whatever the saved counter says
+            lastId.accumulateAndGet(slots.get(slot).id, Math::max);
+        }
+    }
+
+    // Estimated heap bytes of the slots and ID index, not counting the entities themselves
+    public long estimatedBytes() {
+        return Footprint.ofObject(16) + Footprint.ofObject(16) + Footprint.ofArray(slots.size(), Footprint.REFERENCE)
+                + Footprint.ofObject(16) + index.estimatedBytes();
+    }
+}
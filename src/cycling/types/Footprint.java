@@ -0,0 +1,26 @@
+package cycling.types;
+
+/**
+ * Rough heap sizes for the portal's memory reporting. They assume a 64 bit JVM with
+ * compressed references, so 4 byte references, 12 byte object headers, 16 byte array
+ * headers and 8 byte alignment. Good enough to compare structures, not exact.
+ */
+public final class Footprint {
+    public static final int REFERENCE = 4;
+
+    private Footprint() {
+    }
+
+    // An object with the given bytes of fields
+    public static long ofObject(long fieldBytes) {
+        return align(12 + fieldBytes);
+    }
+
+    public static long ofArray(long length, int elementBytes) {
+        return align(16 + length * elementBytes);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,162 @@
+package cycling.types;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive int keys to objects. Uses linear probing with
+ * backward shift deletion so there are no tombstones and no boxing of the keys.
+ */
+public class IntObjectMap<V> {
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    // Always one less than a power of two so it can be used as a bit mask
+    private int mask;
+
+    // Kept separately as Integer.MIN_VALUE is used to mark free slots
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+
+    public IntObjectMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public int size() {
+        return size + (hasFreeKey ? 1 : 0);
+    }
+
+    // Safe to call while another thread changes the map, as ConcurrentCyclingPortal's optimistic reads do. The
+    // answer may then be wrong, but the probe is over one array read once and stops after visiting every slot
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE_KEY) return hasFreeKey ? freeKeyValue : null;
+
+        int[] keys = this.keys;
+        Object[] values = this.values;
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        for (int probes = 0; probes < keys.length; probes++) {
+            int k = keys[slot];
+            if (k == key) return (V) values[slot];
+            if (k == FREE_KEY) return null;
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == FREE_KEY) {
+            V old = freeKeyValue;
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return old;
+        }
+
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        // Keep the load factor at or below a half so probe chains stay short
+        if (++size * 2 > keys.length) rehash(keys.length * 2);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == FREE_KEY) {
+            V old = freeKeyValue;
+            hasFreeKey = false;
+            freeKeyValue = null;
+            return old;
+        }
+
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE_KEY) return null;
+            slot = (slot + 1) & mask;
+        }
+
+        V old = (V) values[slot];
+        size--;
+
+        // Shift back any following entries that would no longer be reachable from their home slot
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE_KEY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE_KEY;
+        values[gap] = null;
+
+        return old;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+        hasFreeKey = false;
+        freeKeyValue = null;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        int[] newKeys = new int[newCapacity];
+        Arrays.fill(newKeys, FREE_KEY);
+        Object[] newValues = new Object[newCapacity];
+        int newMask = newCapacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == FREE_KEY) continue;
+            int slot = mix(oldKeys[i]) & newMask;
+            while (newKeys[slot] != FREE_KEY) slot = (slot + 1) & newMask;
+            newKeys[slot] = oldKeys[i];
+            newValues[slot] = oldValues[i];
+        }
+
+        keys = newKeys;
+        values = newValues;
+        mask = newMask;
+    }
+
+    // IDs are sequential so spread them out before masking
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Estimated heap bytes, not counting the values themselves
+    public long estimatedBytes() {
+        return Footprint.ofObject(24) + Footprint.ofArray(keys.length, 4) + Footprint.ofArray(values.length, Footprint.REFERENCE);
+    }
+}
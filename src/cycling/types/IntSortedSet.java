@@ -0,0 +1,61 @@
+package cycling.types;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A set of ints kept as a sorted primitive array. Lookups are a binary search and
+ * iteration is a scan over contiguous memory, which suits small sets such as the
+ * riders in a stage.
+ */
+public class IntSortedSet implements Serializable {
+    private int[] elements = new int[8];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return elements[index];
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(elements, 0, size, value) >= 0;
+    }
+
+    public boolean add(int value) {
+        int index = Arrays.binarySearch(elements, 0, size, value);
+        if (index >= 0) return false;
+
+        int insertAt = -index - 1;
+        if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+        System.arraycopy(elements, insertAt, elements, insertAt + 1, size - insertAt);
+        elements[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = Arrays.binarySearch(elements, 0, size, value);
+        if (index < 0) return false;
+
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    // Estimated heap bytes
+    public long estimatedBytes() {
+        return Footprint.ofObject(8) + Footprint.ofArray(elements.length, 4);
+    }
+}
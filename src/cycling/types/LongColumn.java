@@ -0,0 +1,141 @@
+package cycling.types;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A fixed capacity column of longs, kept either in a Java array or in native memory
+ * outside the heap. Off heap columns are direct buffers, so the garbage collector only
+ * sees one small object per column whatever its size.
+ * <p>
+ * Both kinds serialise as their values, so a saved column can be read back as either.
+ */
+public abstract class LongColumn implements Serializable {
+
+    public static LongColumn onHeap(int capacity) {
+        return new HeapColumn(capacity);
+    }
+
+    public static LongColumn offHeap(int capacity) {
+        return new DirectColumn(capacity);
+    }
+
+    public abstract boolean isOffHeap();
+
+    public abstract int capacity();
+
+    public abstract long get(int index);
+
+    public abstract void set(int index, long value);
+
+    // Copies length values from one part of the column to another, like System.arraycopy
+    public abstract void move(int from, int to, int length);
+
+    // A column of the given kind and capacity holding the first length values of this one
+    public LongColumn copy(boolean offHeap, int capacity, int length) {
+        LongColumn copy = offHeap ? offHeap(capacity) : onHeap(capacity);
+        for (int i = 0; i < length; i++) copy.set(i, get(i));
+        return copy;
+    }
+
+    private static final class HeapColumn extends LongColumn {
+        private final long[] values;
+
+        HeapColumn(int capacity) {
+            values = new long[capacity];
+        }
+
+        @Override
+        public boolean isOffHeap() {
+            return false;
+        }
+
+        @Override
+        public int capacity() {
+            return values.length;
+        }
+
+        @Override
+        public long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public void set(int index, long value) {
+            values[index] = value;
+        }
+
+        @Override
+        public void move(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+
+        @Override
+        public LongColumn copy(boolean offHeap, int capacity, int length) {
+            if (offHeap) return super.copy(true, capacity, length);
+            HeapColumn copy = new HeapColumn(capacity);
+            System.arraycopy(values, 0, copy.values, 0, length);
+            return copy;
+        }
+    }
+
+    private static final class DirectColumn extends LongColumn {
+        // Not serialisable itself, written out value by value instead
+        private transient LongBuffer buffer;
+
+        DirectColumn(int capacity) {
+            buffer = allocate(capacity);
+        }
+
+        private static LongBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+
+        @Override
+        public boolean isOffHeap() {
+            return true;
+        }
+
+        @Override
+        public int capacity() {
+            return buffer.capacity();
+        }
+
+        @Override
+        public long get(int index) {
+            return buffer.get(index);
+        }
+
+        @Override
+        public void set(int index, long value) {
+            buffer.put(index, value);
+        }
+
+        @Override
+        public void move(int from, int to, int length) {
+            // Copy in the direction that doesn't overwrite values before they are read
+            if (to < from) {
+                for (int i = 0; i < length; i++) buffer.put(to + i, buffer.get(from + i));
+            } else {
+                for (int i = length - 1; i >= 0; i--) buffer.put(to + i, buffer.get(from + i));
+            }
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeInt(buffer.capacity());
+            for (int i = 0; i < buffer.capacity(); i++) out.writeLong(buffer.get(i));
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            buffer = allocate(in.readInt());
+            for (int i = 0; i < buffer.capacity(); i++) buffer.put(i, in.readLong());
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package cycling.types;
+
+import java.util.Arrays;
+
+/**
+ * A ranking of (key, tie key, id) entries that is kept in order as entries are added
+ * and removed, e.g. riders by their total time. Entries are ordered ascending by key,
+ * then by tie key, then by id, which with a tie key of 0 is the order of {@link Ranking}.
+ * <p>
+ * It is an order statistic tree (a treap with subtree sizes in array form), so adding,
+ * removing, finding the position of an entry and finding the entry at a position are
+ * all O(log n).
+ */
+public class OrderedRanking {
+    // Node 0 is a sentinel with size 0 that stands in for every missing child
+    private static final int NIL = 0;
+
+    private long[] keys = new long[16];
+    private long[] tieKeys = new long[16];
+    private int[] ids = new int[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] sizes = new int[16];
+    private int[] priorities = new int[16];
+
+    private int root = NIL;
+    private int allocated = 1;
+    // Freed nodes are chained through their left pointers
+    private int freeList = NIL;
+    private int randomState = 0x2545F491;
+
+    public int size() {
+        return sizes[root];
+    }
+
+    public int idAt(int position) {
+        return ids[nodeAt(position)];
+    }
+
+    public void add(long key, long tieKey, int id) {
+        if (positionOf(key, tieKey, id) >= 0) return;
+        root = insert(root, allocate(key, tieKey, id));
+    }
+
+    public boolean remove(long key, long tieKey, int id) {
+        int before = size();
+        root = delete(root, key, tieKey, id);
+        return size() < before;
+    }
+
+    // Zero based position of the entry, or -1 if it is not in the ranking
+    public int positionOf(long key, long tieKey, int id) {
+        int position = 0;
+        int node = root;
+        while (node != NIL) {
+            if (precedes(key, tieKey, id, node)) {
+                node = left[node];
+            } else if (follows(key, tieKey, id, node)) {
+                position += sizes[left[node]] + 1;
+                node = right[node];
+            } else {
+                return position + sizes[left[node]];
+            }
+        }
+        return -1;
+    }
+
+    public int[] ids() {
+        int[] out = new int[size()];
+        int[] nodes = inOrder();
+        for (int i = 0; i < out.length; i++) out[i] = ids[nodes[i]];
+        return out;
+    }
+
+    public long[] keys() {
+        long[] out = new long[size()];
+        int[] nodes = inOrder();
+        for (int i = 0; i < out.length; i++) out[i] = keys[nodes[i]];
+        return out;
+    }
+
+    private int nodeAt(int position) {
+        if (position < 0 || position >= size()) throw new IndexOutOfBoundsException(position);
+        int node = root;
+        while (true) {
+            int leftSize = sizes[left[node]];
+            if (position < leftSize) {
+                node = left[node];
+            } else if (position == leftSize) {
+                return node;
+            } else {
+                position -= leftSize + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    private int[] inOrder() {
+        int[] out = new int[size()];
+        int[] stack = new int[32];
+        int depth = 0, count = 0, node = root;
+        while (node != NIL || depth > 0) {
+            while (node != NIL) {
+                if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+                stack[depth++] = node;
+                node = left[node];
+            }
+            node = stack[--depth];
+            out[count++] = node;
+            node = right[node];
+        }
+        return out;
+    }
+
+    private int insert(int node, int newNode) {
+        if (node == NIL) return newNode;
+        if (precedes(keys[newNode], tieKeys[newNode], ids[newNode], node)) {
+            left[node] = insert(left[node], newNode);
+            update(node);
+            if (priorities[left[node]] > priorities[node]) node = rotateRight(node);
+        } else {
+            right[node] = insert(right[node], newNode);
+            update(node);
+            if (priorities[right[node]] > priorities[node]) node = rotateLeft(node);
+        }
+        return node;
+    }
+
+    private int delete(int node, long key, long tieKey, int id) {
+        if (node == NIL) return NIL;
+        if (precedes(key, tieKey, id, node)) {
+            left[node] = delete(left[node], key, tieKey, id);
+        } else if (follows(key, tieKey, id, node)) {
+            right[node] = delete(right[node], key, tieKey, id);
+        } else {
+            int merged = merge(left[node], right[node]);
+            free(node);
+            return merged;
+        }
+        update(node);
+        return node;
+    }
+
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (priorities[a] > priorities[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int rotateRight(int node) {
+        int newRoot = left[node];
+        left[node] = right[newRoot];
+        right[newRoot] = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    private int rotateLeft(int node) {
+        int newRoot = right[node];
+        right[node] = left[newRoot];
+        left[newRoot] = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    private void update(int node) {
+        sizes[node] = sizes[left[node]] + sizes[right[node]] + 1;
+    }
+
+    private boolean precedes(long key, long tieKey, int id, int node) {
+        if (key != keys[node]) return key < keys[node];
+        if (tieKey != tieKeys[node]) return tieKey < tieKeys[node];
+        return id < ids[node];
+    }
+
+    private boolean follows(long key, long tieKey, int id, int node) {
+        if (key != keys[node]) return key > keys[node];
+        if (tieKey != tieKeys[node]) return tieKey > tieKeys[node];
+        return id > ids[node];
+    }
+
+    private int allocate(long key, long tieKey, int id) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (allocated == keys.length) grow();
+            node = allocated++;
+        }
+
+        keys[node] = key;
+        tieKeys[node] = tieKey;
+        ids[node] = id;
+        left[node] = NIL;
+        right[node] = NIL;
+        sizes[node] = 1;
+        priorities[node] = nextPriority();
+        return node;
+    }
+
+    private void free(int node) {
+        left[node] = freeList;
+        right[node] = NIL;
+        sizes[node] = 0;
+        freeList = node;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        tieKeys = Arrays.copyOf(tieKeys, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+    }
+
+    // xorshift, the priorities only need to look random to keep the tree balanced
+    private int nextPriority() {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 17;
+        randomState ^= randomState << 5;
+        return randomState;
+    }
+
+    // Estimated heap bytes
+    public long estimatedBytes() {
+        return Footprint.ofObject(48) + 2 * Footprint.ofArray(keys.length, 8) + 5 * Footprint.ofArray(keys.length, 4);
+    }
+}
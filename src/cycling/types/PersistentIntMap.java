@@ -0,0 +1,115 @@
+package cycling.types;
+
+import java.util.Objects;
+
+/**
+ * An immutable map from non-negative int keys to values. Adding or removing a key
+ * returns a new map that shares every node with the old one except those on the
+ * path to the key, so keeping many versions of a large map around is cheap.
+ * <p>
+ * It is a trie that takes the key five bits at a time, so a lookup or change touches
+ * at most seven nodes, and dense keys such as sequential IDs keep it shallow. Keys
+ * are iterated in ascending order.
+ */
+public final class PersistentIntMap<V> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(new Object[WIDTH], 0, 0);
+
+    // Nodes at level 0 hold values, the others hold child nodes. Nodes emptied by removals are kept
+    private final Object[] root;
+    // Level of the root, i.e. how far a key is shifted to find its child of the root
+    private final int shift;
+    private final int size;
+
+    private PersistentIntMap(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (!fits(key, shift)) return null;
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(key >>> level) & MASK];
+            if (node == null) return null;
+        }
+        return (V) node[key & MASK];
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    // A map with the key set to the value
+    public PersistentIntMap<V> with(int key, V value) {
+        if (key < 0) throw new IllegalArgumentException("Negative key " + key);
+        Objects.requireNonNull(value);
+
+        Object[] newRoot = root;
+        int newShift = shift;
+        while (!fits(key, newShift)) {
+            Object[] grown = new Object[WIDTH];
+            grown[0] = newRoot;
+            newRoot = grown;
+            newShift += BITS;
+        }
+        int newSize = containsKey(key) ? size : size + 1;
+        return new PersistentIntMap<>(set(newRoot, newShift, key, value), newShift, newSize);
+    }
+
+    // A map without the key, or this one if the key isn't in it
+    public PersistentIntMap<V> without(int key) {
+        if (!containsKey(key)) return this;
+        return new PersistentIntMap<>(set(root, shift, key, null), shift, size - 1);
+    }
+
+    // Every key in ascending order
+    public int[] keys() {
+        int[] out = new int[size];
+        collect(root, shift, 0, out, 0);
+        return out;
+    }
+
+    // Whether the key can be reached from a root at the given level
+    private static boolean fits(int key, int shift) {
+        return key >= 0 && (shift + BITS >= Integer.SIZE || key >>> (shift + BITS) == 0);
+    }
+
+    // Copies the path from the node down to the key, leaving the rest shared
+    private static Object[] set(Object[] node, int level, int key, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int index = (key >>> level) & MASK;
+        copy[index] = level == 0 ? value : set((Object[]) copy[index], level - BITS, key, value);
+        return copy;
+    }
+
+    private static int collect(Object[] node, int level, int prefix, int[] out, int count) {
+        for (int i = 0; i < WIDTH; i++) {
+            if (node[i] == null) continue;
+            int key = prefix | (i << level);
+            if (level == 0) {
+                out[count++] = key;
+            } else {
+                count = collect((Object[]) node[i], level - BITS, key, out, count);
+            }
+        }
+        return count;
+    }
+}
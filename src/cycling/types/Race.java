@@ -2,13 +2,12 @@ package cycling.types;
 
 import cycling.StageType;
 
-import java.io.Serializable;
-import java.util.ArrayList;
-
-public class Race implements Serializable {
-    public int id;
+public class Race extends Entity {
     public String name;
     public String description;
     public StageType type;
-    public final ArrayList<Integer> stages = new ArrayList<>();
+    // Handle of the race's list of stage IDs in the portal's ChildPool
+    public int stageList;
+    // Incremented whenever the race's stages, segments or results change
+    public int version;
 }
@@ -0,0 +1,81 @@
+package cycling.types;
+
+/**
+ * Sorting kernel shared by every ranking in the portal. It sorts parallel arrays of
+ * primitive (key, tag) pairs, usually a time and a rider, without boxing either.
+ * <p>
+ * Pairs are ordered ascending by key and pairs with equal keys are ordered ascending by
+ * tag. Nothing is ever dropped on a tie, and as long as tags are unique the result does
+ * not depend on the input order. Callers pick the tag to choose the tie-break, e.g. the
+ * rider ID, or a rider's position in another ranking. To rank descending pass negated keys.
+ */
+public final class Ranking {
+    // Runs shorter than this are insertion sorted before merging
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private Ranking() {
+    }
+
+    /**
+     * Sorts the first {@code length} pairs in place. Merge sort, so O(n log n) in the
+     * worst case, allocating one scratch copy of each array.
+     */
+    public static void sort(long[] keys, int[] tags, int length) {
+        if (length < 2) return;
+
+        for (int from = 0; from < length; from += INSERTION_SORT_THRESHOLD) {
+            insertionSort(keys, tags, from, Math.min(from + INSERTION_SORT_THRESHOLD, length));
+        }
+        if (length <= INSERTION_SORT_THRESHOLD) return;
+
+        long[] srcKeys = keys, dstKeys = new long[length];
+        int[] srcTags = tags, dstTags = new int[length];
+        for (int width = INSERTION_SORT_THRESHOLD; width < length; width *= 2) {
+            for (int from = 0; from < length; from += 2 * width) {
+                int mid = Math.min(from + width, length);
+                int to = Math.min(from + 2 * width, length);
+                merge(srcKeys, srcTags, dstKeys, dstTags, from, mid, to);
+            }
+            long[] swapKeys = srcKeys; srcKeys = dstKeys; dstKeys = swapKeys;
+            int[] swapTags = srcTags; srcTags = dstTags; dstTags = swapTags;
+        }
+
+        // The sorted pairs end up in whichever buffer was written last
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, length);
+            System.arraycopy(srcTags, 0, tags, 0, length);
+        }
+    }
+
+    public static boolean precedes(long key, int tag, long otherKey, int otherTag) {
+        return key < otherKey || (key == otherKey && tag < otherTag);
+    }
+
+    private static void insertionSort(long[] keys, int[] tags, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            int tag = tags[i];
+            int j = i - 1;
+            while (j >= from && precedes(key, tag, keys[j], tags[j])) {
+                keys[j + 1] = keys[j];
+                tags[j + 1] = tags[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            tags[j + 1] = tag;
+        }
+    }
+
+    private static void merge(long[] srcKeys, int[] srcTags, long[] dstKeys, int[] dstTags, int from, int mid, int to) {
+        int left = from, right = mid;
+        for (int out = from; out < to; out++) {
+            if (right >= to || (left < mid && !precedes(srcKeys[right], srcTags[right], srcKeys[left], srcTags[left]))) {
+                dstKeys[out] = srcKeys[left];
+                dstTags[out] = srcTags[left++];
+            } else {
+                dstKeys[out] = srcKeys[right];
+                dstTags[out] = srcTags[right++];
+            }
+        }
+    }
+}
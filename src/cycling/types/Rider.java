@@ -1,13 +1,10 @@
 package cycling.types;
 
-import java.io.Serializable;
-import java.time.LocalTime;
-import java.util.HashMap;
-
-public class Rider implements Serializable {
-    public int id;
+public class Rider extends Entity {
+    // The team this rider belongs to
+    public int teamId;
     public String name;
     public int yearOfBirth;
-    // Integer key is the stage id, the array of times is the rider's times for the respective segments
-    public HashMap<Integer, LocalTime[]> results;
+    // IDs of the stages this rider has results in. The times themselves are kept by each stage
+    public final IntSortedSet stages = new IntSortedSet();
 }
@@ -0,0 +1,79 @@
+package cycling.types;
+
+import cycling.SegmentType;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Every segment in the portal, stored column by column rather than as one object each.
+ * A segment is just its ID, and its fields are read from parallel primitive arrays
+ * indexed by that ID. This costs about 25 bytes per segment, with no object header,
+ * index entry or boxed child ID.
+ * <p>
+ * IDs come from the table's own counter, starting at 1, so the arrays stay dense. A
+ * removed segment leaves its slot empty and its ID is never handed out again.
+ */
+public class SegmentTable implements Serializable {
+    private static final SegmentType[] TYPES = SegmentType.values();
+
+    // Type ordinal + 1, or 0 where there is no segment with that ID
+    private byte[] types = new byte[16];
+    private int[] stageIds = new int[16];
+    private double[] locations = new double[16];
+    private double[] averageGradients = new double[16];
+    private int lastId;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int segmentId) {
+        return segmentId > 0 && segmentId <= lastId && types[segmentId] != 0;
+    }
+
+    // Returns the new segment's ID
+    public int add(int stageId, SegmentType type, double location, double averageGradient) {
+        int segmentId = ++lastId;
+        if (segmentId == types.length) grow();
+
+        types[segmentId] = (byte) (type.ordinal() + 1);
+        stageIds[segmentId] = stageId;
+        locations[segmentId] = location;
+        averageGradients[segmentId] = averageGradient;
+        size++;
+        return segmentId;
+    }
+
+    public boolean remove(int segmentId) {
+        if (!contains(segmentId)) return false;
+
+        types[segmentId] = 0;
+        size--;
+        return true;
+    }
+
+    // The getters below are only defined for IDs in the table, see contains
+    public SegmentType typeOf(int segmentId) {
+        return TYPES[types[segmentId] - 1];
+    }
+
+    public int stageIdOf(int segmentId) {
+        return stageIds[segmentId];
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        stageIds = Arrays.copyOf(stageIds, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        averageGradients = Arrays.copyOf(averageGradients, capacity);
+    }
+
+    // Estimated heap bytes
+    public long estimatedBytes() {
+        return Footprint.ofObject(24) + Footprint.ofArray(types.length, 1) + Footprint.ofArray(types.length, 4)
+                + 2 * Footprint.ofArray(types.length, 8);
+    }
+}
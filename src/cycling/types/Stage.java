@@ -2,18 +2,86 @@ package cycling.types;
 
 import cycling.StageType;
 
-import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-
-public class Stage implements Serializable {
-    public int id;
-    public String name;
-    public String description;
-    public double length;
-    public StageType type;
-    public LocalDateTime startTime;
-    public final List<Integer> segments = new ArrayList<>();
-    public StageState state = StageState.SETUP;
-}
\ No newline at end of file
+
+/**
+ * A view of one stage's row in a {@link StageTable}. Views hold nothing but the ID, so
+ * they are made as needed rather than kept, and stop being valid once the stage is
+ * removed.
+ */
+public final class Stage {
+    public final int id;
+    private final StageTable table;
+
+    Stage(StageTable table, int id) {
+        this.table = table;
+        this.id = id;
+    }
+
+    // The race this stage belongs to
+    public int raceId() {
+        return table.raceIds[id];
+    }
+
+    public String name() {
+        return table.names[id];
+    }
+
+    public String description() {
+        return table.descriptions[id];
+    }
+
+    public double length() {
+        return table.lengths[id];
+    }
+
+    public StageType type() {
+        return table.typeOf(id);
+    }
+
+    public LocalDateTime startTime() {
+        return table.startTimeOf(id);
+    }
+
+    public StageState state() {
+        return table.stateOf(id);
+    }
+
+    public void setState(StageState state) {
+        table.states[id] = (byte) state.ordinal();
+    }
+
+    // Checkpoint times of the riders with results registered in this stage
+    public StageResults results() {
+        return table.results[id];
+    }
+
+    // Incremented whenever the stage's segments or results change
+    public int version() {
+        return table.versions[id];
+    }
+
+    public void incrementVersion() {
+        table.versions[id]++;
+    }
+
+    public int segmentCount() {
+        return table.children.size(table.segmentLists[id]);
+    }
+
+    public int segmentAt(int index) {
+        return table.children.get(table.segmentLists[id], index);
+    }
+
+    public int[] segmentIds() {
+        return table.children.toArray(table.segmentLists[id]);
+    }
+
+    public void addSegment(int segmentId) {
+        table.children.add(table.segmentLists[id], segmentId);
+    }
+
+    public boolean removeSegment(int segmentId) {
+        return table.children.removeValue(table.segmentLists[id], segmentId);
+    }
+}
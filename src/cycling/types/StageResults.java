@@ -0,0 +1,132 @@
+package cycling.types;
+
+import java.io.Serializable;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * The checkpoint times of every rider with a result in a stage, stored column by
+ * column instead of as one object per rider. Riders are rows kept sorted by rider ID,
+ * and each row's checkpoints are nanoseconds of the day, laid out one after another in
+ * a single long array. Ranking and scoring a stage is then a scan over primitive arrays.
+ * <p>
+ * Every row has the same number of checkpoints, fixed by the first result added. The
+ * checkpoints can be kept off the heap, see {@link LongColumn}, while the rider IDs used
+ * to look rows up stay on it. Off heap checkpoints are freed when the garbage collector
+ * collects their column, there is no way to release them sooner. Queries may still be
+ * reading results that have just been dropped, so freeing them by hand wouldn't be safe.
+ */
+public class StageResults implements Serializable {
+    private int[] riderIds = new int[8];
+    // Row i's checkpoints are checkpoints[i * width] up to checkpoints[(i + 1) * width - 1]
+    private LongColumn checkpoints = LongColumn.onHeap(0);
+    private int width;
+    private int size;
+
+    public boolean isOffHeap() {
+        return checkpoints.isOffHeap();
+    }
+
+    // Moves the checkpoints on or off the heap
+    public void setOffHeap(boolean offHeap) {
+        if (offHeap == isOffHeap()) return;
+        checkpoints = checkpoints.copy(offHeap, riderIds.length * width, size * width);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int riderIdAt(int row) {
+        if (row >= size) throw new IndexOutOfBoundsException(row);
+        return riderIds[row];
+    }
+
+    // Row of the rider or -1 if they have no result in the stage
+    public int rowOf(int riderId) {
+        int row = Arrays.binarySearch(riderIds, 0, size, riderId);
+        return row < 0 ? -1 : row;
+    }
+
+    public boolean contains(int riderId) {
+        return rowOf(riderId) >= 0;
+    }
+
+    public long checkpointNanos(int row, int checkpoint) {
+        if (row >= size) throw new IndexOutOfBoundsException(row);
+        if (checkpoint >= width) throw new IndexOutOfBoundsException(checkpoint);
+        return checkpoints.get(row * width + checkpoint);
+    }
+
+    // Finish time minus start time
+    public long elapsedNanos(int row) {
+        return checkpointNanos(row, width - 1) - checkpointNanos(row, 0);
+    }
+
+    public LocalTime[] times(int row) {
+        LocalTime[] times = new LocalTime[width];
+        for (int i = 0; i < width; i++) times[i] = LocalTime.ofNanoOfDay(checkpointNanos(row, i));
+        return times;
+    }
+
+    // Returns false if the rider already has a result
+    public boolean add(int riderId, LocalTime[] times) {
+        int index = Arrays.binarySearch(riderIds, 0, size, riderId);
+        if (index >= 0) return false;
+        if (size == 0) {
+            width = times.length;
+            checkpoints = checkpoints.copy(isOffHeap(), riderIds.length * width, 0);
+        } else if (times.length != width) {
+            throw new IllegalArgumentException("Expected " + width + " checkpoints");
+        }
+        long[] row = new long[width];
+        for (int i = 0; i < width; i++) row[i] = times[i].toNanoOfDay();
+
+        int insertAt = -index - 1;
+        if (size == riderIds.length) {
+            riderIds = Arrays.copyOf(riderIds, size * 2);
+            checkpoints = checkpoints.copy(isOffHeap(), size * 2 * width, size * width);
+        }
+        System.arraycopy(riderIds, insertAt, riderIds, insertAt + 1, size - insertAt);
+        checkpoints.move(insertAt * width, (insertAt + 1) * width, (size - insertAt) * width);
+        riderIds[insertAt] = riderId;
+        for (int i = 0; i < width; i++) checkpoints.set(insertAt * width + i, row[i]);
+        size++;
+        return true;
+    }
+
+    public boolean remove(int riderId) {
+        int row = rowOf(riderId);
+        if (row < 0) return false;
+
+        System.arraycopy(riderIds, row + 1, riderIds, row, size - row - 1);
+        checkpoints.move((row + 1) * width, row * width, (size - row - 1) * width);
+        size--;
+        return true;
+    }
+
+    // A copy on the heap that keeps these results as they are now
+    public StageResults copy() {
+        StageResults copy = new StageResults();
+        copy.riderIds = riderIds.clone();
+        copy.checkpoints = checkpoints.copy(false, riderIds.length * width, size * width);
+        copy.width = width;
+        copy.size = size;
+        return copy;
+    }
+
+    // Estimated heap bytes, including the checkpoints if they are on the heap
+    public long estimatedBytes() {
+        long bytes = Footprint.ofObject(16) + Footprint.ofArray(riderIds.length, 4);
+        return bytes + (isOffHeap() ? Footprint.ofObject(8) : Footprint.ofArray(checkpoints.capacity(), 8));
+    }
+
+    // Bytes of native memory holding the checkpoints, 0 if they are on the heap
+    public long offHeapBytes() {
+        return isOffHeap() ? (long) checkpoints.capacity() * Long.BYTES : 0;
+    }
+}
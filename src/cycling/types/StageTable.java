@@ -0,0 +1,145 @@
+package cycling.types;
+
+import cycling.StageType;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Every stage in the portal, stored column by column like {@link SegmentTable}. Each
+ * stage's segment IDs are a list in the portal's shared {@link ChildPool}, and
+ * {@link #get(int)} hands out a {@link Stage} view onto a stage's row. Only the
+ * results are an object per stage.
+ * <p>
+ * IDs come from the table's own counter, starting at 1, and are never handed out
+ * again once their stage has been removed.
+ */
+public class StageTable implements Serializable {
+    private static final StageType[] TYPES = StageType.values();
+    private static final StageState[] STATES = StageState.values();
+
+    final ChildPool children;
+
+    int[] raceIds = new int[16];
+    String[] names = new String[16];
+    String[] descriptions = new String[16];
+    double[] lengths = new double[16];
+    // Type ordinal + 1, or 0 for a stage without a type
+    byte[] types = new byte[16];
+    // The start time in UTC as seconds since the epoch and nanoseconds, -1 nanoseconds for a stage without one
+    long[] startSeconds = new long[16];
+    int[] startNanos = new int[16];
+    byte[] states = new byte[16];
+    // Handle of the stage's list of segment IDs, or 0 where there is no stage with that ID
+    int[] segmentLists = new int[16];
+    StageResults[] results = new StageResults[16];
+    // Incremented whenever the stage's segments or results change
+    int[] versions = new int[16];
+    private int lastId;
+    private int size;
+
+    public StageTable(ChildPool children) {
+        this.children = children;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int stageId) {
+        return stageId > 0 && stageId <= lastId && segmentLists[stageId] != 0;
+    }
+
+    // A view of the stage with the ID or null if there is none
+    public Stage get(int stageId) {
+        return contains(stageId) ? new Stage(this, stageId) : null;
+    }
+
+    // Returns the new stage's ID. It starts in setup with no segments or results
+    public int add(int raceId, String name, String description, double length, LocalDateTime startTime, StageType type,
+                   StageResults stageResults) {
+        int stageId = ++lastId;
+        if (stageId == segmentLists.length) grow();
+
+        raceIds[stageId] = raceId;
+        names[stageId] = name;
+        descriptions[stageId] = description;
+        lengths[stageId] = length;
+        types[stageId] = (byte) (type == null ? 0 : type.ordinal() + 1);
+        startSeconds[stageId] = startTime == null ? 0 : startTime.toEpochSecond(ZoneOffset.UTC);
+        startNanos[stageId] = startTime == null ? -1 : startTime.getNano();
+        states[stageId] = (byte) StageState.SETUP.ordinal();
+        segmentLists[stageId] = children.newList();
+        results[stageId] = stageResults;
+        versions[stageId] = 0;
+        size++;
+        return stageId;
+    }
+
+    public boolean remove(int stageId) {
+        if (!contains(stageId)) return false;
+
+        children.free(segmentLists[stageId]);
+        names[stageId] = null;
+        descriptions[stageId] = null;
+        segmentLists[stageId] = 0;
+        results[stageId] = null;
+        size--;
+        return true;
+    }
+
+    // The IDs of every stage in ascending order
+    public int[] ids() {
+        int[] ids = new int[size];
+        int count = 0;
+        for (int stageId = 1; stageId <= lastId; stageId++) {
+            if (segmentLists[stageId] != 0) ids[count++] = stageId;
+        }
+        return ids;
+    }
+
+    // Replaces every name and description with its copy in the pool
+    public void internStrings(StringPool strings) {
+        for (int stageId = 1; stageId <= lastId; stageId++) {
+            names[stageId] = strings.intern(names[stageId]);
+            descriptions[stageId] = strings.intern(descriptions[stageId]);
+        }
+    }
+
+    StageType typeOf(int stageId) {
+        return types[stageId] == 0 ? null : TYPES[types[stageId] - 1];
+    }
+
+    LocalDateTime startTimeOf(int stageId) {
+        if (startNanos[stageId] < 0) return null;
+        return LocalDateTime.ofEpochSecond(startSeconds[stageId], startNanos[stageId], ZoneOffset.UTC);
+    }
+
+    StageState stateOf(int stageId) {
+        return STATES[states[stageId]];
+    }
+
+    private void grow() {
+        int capacity = segmentLists.length * 2;
+        raceIds = Arrays.copyOf(raceIds, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        types = Arrays.copyOf(types, capacity);
+        startSeconds = Arrays.copyOf(startSeconds, capacity);
+        startNanos = Arrays.copyOf(startNanos, capacity);
+        states = Arrays.copyOf(states, capacity);
+        segmentLists = Arrays.copyOf(segmentLists, capacity);
+        results = Arrays.copyOf(results, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+
+    // Estimated heap bytes, not counting the segment lists, which are in the shared pool, or the results
+    public long estimatedBytes() {
+        int capacity = segmentLists.length;
+        return Footprint.ofObject(8 + 12 * Footprint.REFERENCE) + 3 * Footprint.ofArray(capacity, Footprint.REFERENCE)
+                + 4 * Footprint.ofArray(capacity, 4) + 2 * Footprint.ofArray(capacity, 8) + 2 * Footprint.ofArray(capacity, 1);
+    }
+}
@@ -0,0 +1,45 @@
+package cycling.types;
+
+import java.util.Arrays;
+
+/**
+ * Elapsed and adjusted elapsed times of every rider in a stage, in nanoseconds. All
+ * arrays are in finishing order, so index 0 is the stage winner.
+ */
+public class StageTimes {
+    public final int[] riderIds;
+    public final long[] elapsed;
+    public final long[] adjusted;
+
+    // Rider IDs sorted ascending and each one's index into the arrays above, for lookups by rider
+    private final int[] sortedRiderIds;
+    private final int[] positions;
+
+    public StageTimes(int[] riderIds, long[] elapsed, long[] adjusted) {
+        this.riderIds = riderIds;
+        this.elapsed = elapsed;
+        this.adjusted = adjusted;
+
+        sortedRiderIds = riderIds.clone();
+        Arrays.sort(sortedRiderIds);
+        positions = new int[riderIds.length];
+        for (int i = 0; i < riderIds.length; i++) {
+            positions[Arrays.binarySearch(sortedRiderIds, riderIds[i])] = i;
+        }
+    }
+
+    public int size() {
+        return riderIds.length;
+    }
+
+    // Position of the rider in finishing order or -1 if they have no result in the stage
+    public int positionOf(int riderId) {
+        int index = Arrays.binarySearch(sortedRiderIds, riderId);
+        return index < 0 ? -1 : positions[index];
+    }
+
+    // Estimated heap bytes
+    public long estimatedBytes() {
+        return Footprint.ofObject(5 * Footprint.REFERENCE) + 3 * Footprint.ofArray(riderIds.length, 4) + 2 * Footprint.ofArray(riderIds.length, 8);
+    }
+}
@@ -0,0 +1,29 @@
+package cycling.types;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Deduplicates strings as they are stored, so that e.g. a description repeated across
+ * thousands of races is kept once. Entries are held weakly, so a string that nothing
+ * else refers to any more, e.g. the name of a removed rider, drops out of the pool.
+ */
+public class StringPool {
+    private final WeakHashMap<String, WeakReference<String>> strings = new WeakHashMap<>();
+
+    // The pooled string equal to value, adding value if there is none. Null stays null
+    public String intern(String value) {
+        if (value == null) return null;
+
+        WeakReference<String> pooled = strings.get(value);
+        String existing = pooled == null ? null : pooled.get();
+        if (existing != null) return existing;
+
+        strings.put(value, new WeakReference<>(value));
+        return value;
+    }
+
+    public int size() {
+        return strings.size();
+    }
+}
@@ -1,12 +1,40 @@
 package cycling.types;
 
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-
-public class Team implements Serializable {
-    public int id;
-    public String name;
-    public String description;
-    public final List<Integer> riders = new ArrayList<>();
+/**
+ * A view of one team's row in a {@link TeamTable}. Views hold nothing but the ID, so
+ * they are made as needed rather than kept, and stop being valid once the team is
+ * removed.
+ */
+public final class Team {
+    public final int id;
+    private final TeamTable table;
+
+    Team(TeamTable table, int id) {
+        this.table = table;
+        this.id = id;
+    }
+
+    public String name() {
+        return table.names[id];
+    }
+
+    public String description() {
+        return table.descriptions[id];
+    }
+
+    public int riderCount() {
+        return table.children.size(table.riderLists[id]);
+    }
+
+    public int[] riderIds() {
+        return table.children.toArray(table.riderLists[id]);
+    }
+
+    public void addRider(int riderId) {
+        table.children.add(table.riderLists[id], riderId);
+    }
+
+    public boolean removeRider(int riderId) {
+        return table.children.removeValue(table.riderLists[id], riderId);
+    }
 }
@@ -0,0 +1,94 @@
+package cycling.types;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Every team in the portal, stored column by column like {@link SegmentTable}. Each
+ * team's rider IDs are a list in the portal's shared {@link ChildPool}, and
+ * {@link #get(int)} hands out a {@link Team} view onto a team's row.
+ * <p>
+ * IDs come from the table's own counter, starting at 1, and are never handed out
+ * again once their team has been removed.
+ */
+public class TeamTable implements Serializable {
+    final ChildPool children;
+
+    String[] names = new String[16];
+    String[] descriptions = new String[16];
+    // Handle of the team's list of rider IDs, or 0 where there is no team with that ID
+    int[] riderLists = new int[16];
+    private int lastId;
+    private int size;
+
+    public TeamTable(ChildPool children) {
+        this.children = children;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int teamId) {
+        return teamId > 0 && teamId <= lastId && riderLists[teamId] != 0;
+    }
+
+    // A view of the team with the ID or null if there is none
+    public Team get(int teamId) {
+        return contains(teamId) ? new Team(this, teamId) : null;
+    }
+
+    // Returns the new team's ID
+    public int add(String name, String description) {
+        int teamId = ++lastId;
+        if (teamId == riderLists.length) grow();
+
+        names[teamId] = name;
+        descriptions[teamId] = description;
+        riderLists[teamId] = children.newList();
+        size++;
+        return teamId;
+    }
+
+    public boolean remove(int teamId) {
+        if (!contains(teamId)) return false;
+
+        children.free(riderLists[teamId]);
+        names[teamId] = null;
+        descriptions[teamId] = null;
+        riderLists[teamId] = 0;
+        size--;
+        return true;
+    }
+
+    // The IDs of every team in ascending order
+    public int[] ids() {
+        int[] ids = new int[size];
+        int count = 0;
+        for (int teamId = 1; teamId <= lastId; teamId++) {
+            if (riderLists[teamId] != 0) ids[count++] = teamId;
+        }
+        return ids;
+    }
+
+    // Replaces every name and description with its copy in the pool
+    public void internStrings(StringPool strings) {
+        for (int teamId = 1; teamId <= lastId; teamId++) {
+            names[teamId] = strings.intern(names[teamId]);
+            descriptions[teamId] = strings.intern(descriptions[teamId]);
+        }
+    }
+
+    private void grow() {
+        int capacity = riderLists.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        riderLists = Arrays.copyOf(riderLists, capacity);
+    }
+
+    // Estimated heap bytes, not counting the rider lists, which are in the shared pool
+    public long estimatedBytes() {
+        return Footprint.ofObject(8 + 4 * Footprint.REFERENCE) + 2 * Footprint.ofArray(riderLists.length, Footprint.REFERENCE)
+                + Footprint.ofArray(riderLists.length, 4);
+    }
+}
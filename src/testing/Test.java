@@ -1,7 +1,17 @@
 package testing;
 
 import testing.test_cases.*;
+import testing.test_cases.maths.TestAdjustedElapsedTimes;
+import testing.test_cases.maths.TestClassificationInvalidation;
 import testing.test_cases.maths.TestGetRanked;
+import testing.test_cases.maths.TestGetStageResult;
+import testing.test_cases.maths.TestIncrementalStandings;
+import testing.test_cases.maths.TestLeaderboardTop;
+import testing.test_cases.maths.TestRiderPosition;
+import testing.test_cases.maths.TestScoringScheme;
+import testing.test_cases.maths.TestNanosQueries;
+import testing.test_cases.maths.TestOutputBuffers;
+import testing.test_cases.maths.TestRankingTies;
 
 public class Test {
     public static void main(String[] args) {
@@ -17,6 +27,7 @@ public class Test {
         exit = exit | new TestRidersGet().runner();
         exit = exit | new TestRiderCreate().runner();
         exit = exit | new TestRiderRemove().runner();
+        exit = exit | new TestRaceRemove().runner();
 
         exit = exit | new TestAddStageToRace().runner();
 
@@ -25,6 +36,25 @@ public class Test {
         exit = exit | new TestGetStageSegments().runner();
 
         exit = exit | new TestGetRanked().runner();
+        exit = exit | new TestAdjustedElapsedTimes().runner();
+        exit = exit | new TestRankingTies().runner();
+        exit = exit | new TestGetStageResult().runner();
+        exit = exit | new TestClassificationInvalidation().runner();
+        exit = exit | new TestIncrementalStandings().runner();
+        exit = exit | new TestLeaderboardTop().runner();
+        exit = exit | new TestRiderPosition().runner();
+        exit = exit | new TestScoringScheme().runner();
+        exit = exit | new TestNanosQueries().runner();
+        exit = exit | new TestOutputBuffers().runner();
+
+        exit = exit | new TestIDLookup().runner();
+        exit = exit | new TestRiderResults().runner();
+        exit = exit | new TestNameLookup().runner();
+        exit = exit | new TestStringPool().runner();
+        exit = exit | new TestPortalStats().runner();
+        exit = exit | new TestConcurrentPortal().runner();
+        exit = exit | new TestPortalSnapshot().runner();
+        exit = exit | new TestChildPool().runner();
 
         System.exit(exit);
     }
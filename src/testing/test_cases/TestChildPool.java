@@ -0,0 +1,76 @@
+package testing.test_cases;
+
+import cycling.*;
+import cycling.types.ChildPool;
+
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+@SuppressWarnings("SameReturnValue")
+public class TestChildPool extends testing.TestCase {
+    public String testListsShareOneArray() throws AssertError {
+        ChildPool pool = new ChildPool();
+        int first = pool.newList();
+        int second = pool.newList();
+        // Interleaved adds keep moving each list past the other
+        for (int i = 0; i < 1000; i++) {
+            pool.add(first, i);
+            pool.add(second, -i);
+        }
+        assertEqual(pool.size(first) == 1000, true);
+        assertEqual(pool.get(second, 999) == -999, true);
+        assertEqual(pool.removeValue(first, 500), true);
+        assertEqual(pool.removeValue(first, 500), false);
+        assertEqual(pool.indexOf(first, 501) == 500, true);
+
+        pool.free(second);
+        int reused = pool.newList();
+        assertEqual(reused, second);
+        assertEqual(pool.size(reused), 0);
+        pool.add(reused, 7);
+
+        pool.compact();
+        assertEqual(pool.get(first, 998) == 999, true);
+        assertEqual(pool.contains(first, 500), false);
+        assertEqual(Arrays.equals(pool.toArray(reused), new int[]{7}), true);
+        return null;
+    }
+
+    public String testChildListsSurviveSaveAndLoad() throws Exception {
+        CyclingPortal c = new CyclingPortal();
+        int[] teams = new int[20];
+        for (int t = 0; t < teams.length; t++) {
+            teams[t] = c.createTeam("Pooled team " + t, null);
+        }
+        for (int i = 0; i < 30; i++) {
+            for (int team : teams) c.createRider(team, "Pooled rider", 1990);
+        }
+        for (int t = 0; t < teams.length; t += 2) c.removeTeam(teams[t]);
+        int race = c.createRace("Pooled race", null);
+        int stage = c.addStageToRace(race, "Pooled stage", null, 100, LocalDateTime.of(2024, 7, 1, 11, 30), StageType.FLAT);
+        int sprint = c.addIntermediateSprintToStage(stage, 40);
+        c.compactCyclingPortal();
+
+        int[] riders = c.getTeamRiders(teams[1]);
+        assertEqual(riders.length, 30);
+        String filename = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        c.saveCyclingPortal(filename);
+        c.eraseCyclingPortal();
+        assertEqual(c.getTeams().length, 0);
+
+        c.loadCyclingPortal(filename);
+        assertEqual(c.getTeams().length, 10);
+        assertEqual(Arrays.equals(c.getTeamRiders(teams[1]), riders), true);
+        assertEqual(Arrays.equals(c.getRaceStages(race), new int[]{stage}), true);
+        assertEqual(Arrays.equals(c.getStageSegments(stage), new int[]{sprint}), true);
+        // Teams added after loading get new IDs and their own lists
+        int team = c.createTeam("Pooled late team", null);
+        assertEqual(team > teams[teams.length - 1], true);
+        c.createRider(team, "Late rider", 1990);
+        assertEqual(c.getTeamRiders(team).length, 1);
+        assertEqual(Arrays.equals(c.getTeamRiders(teams[1]), riders), true);
+        return null;
+    }
+}
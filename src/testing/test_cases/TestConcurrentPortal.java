@@ -0,0 +1,268 @@
+package testing.test_cases;
+
+import cycling.*;
+import cycling.types.IntObjectMap;
+
+import java.lang.reflect.Field;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+@SuppressWarnings("SameReturnValue")
+public class TestConcurrentPortal extends testing.TestCase {
+    private static final int RIDERS = 40;
+
+    // Builds the same race on either portal, with a result for every rider in the first stage
+    private static int[] setUp(CyclingPortalInterface c) throws Exception {
+        int team = c.createTeam("Threaded team", null);
+        int race = c.createRace("Threaded race", null);
+        int stage1 = c.addStageToRace(race, "Threaded one", null, 100, LocalDateTime.now(), StageType.FLAT);
+        int stage2 = c.addStageToRace(race, "Threaded two", null, 100, LocalDateTime.now(), StageType.FLAT);
+        c.addIntermediateSprintToStage(stage2, 50);
+        c.concludeStagePreparation(stage1);
+        c.concludeStagePreparation(stage2);
+        LocalTime s = LocalTime.of(9, 0);
+        for (int i = 0; i < RIDERS; i++) {
+            int rider = c.createRider(team, "Threaded " + i, 1990);
+            c.registerRiderResultsInStage(stage1, rider, s, s.plusMinutes(120 + i));
+        }
+        return new int[]{team, race, stage2};
+    }
+
+    // Registers the second stage, deleting and re-registering every other rider along the way
+    private static void registerSecondStage(CyclingPortalInterface c, int team, int stage) throws Exception {
+        LocalTime s = LocalTime.of(9, 0);
+        int[] riders = c.getTeamRiders(team);
+        for (int i = 0; i < riders.length; i++) {
+            c.registerRiderResultsInStage(stage, riders[i], s, s.plusMinutes(60 - i), s.plusMinutes(150 - i));
+            if (i % 2 == 0) {
+                c.deleteRiderResultsInStage(stage, riders[i]);
+                c.registerRiderResultsInStage(stage, riders[i], s, s.plusMinutes(60 - i), s.plusMinutes(150 - i));
+            }
+        }
+    }
+
+    public String testReadsDuringWrites() throws Exception {
+        ConcurrentCyclingPortal c = new ConcurrentCyclingPortal();
+        int[] ids = setUp(c);
+        int team = ids[0], race = ids[1], stage = ids[2];
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                registerSecondStage(c, team, stage);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    while (writer.isAlive()) {
+                        // Every rider has a result in the first stage, so they are always all classified
+                        int[] ranks = c.getRidersGeneralClassificationRank(race);
+                        if (ranks.length != RIDERS) throw new IllegalStateException("Classified " + ranks.length);
+                        if (c.getTeamRiders(team).length != RIDERS) throw new IllegalStateException("Lost a rider");
+                        if (c.getRidersRankInStage(stage).length > RIDERS) throw new IllegalStateException("Too many results");
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+
+        for (Thread reader : readers) reader.start();
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) reader.join();
+        assertEqual(failure.get(), null);
+
+        // Ends up exactly as if it had been run on one thread
+        CyclingPortal expected = new CyclingPortal();
+        int[] expectedIds = setUp(expected);
+        registerSecondStage(expected, expectedIds[0], expectedIds[2]);
+        assertEqual(Arrays.equals(c.getRidersGeneralClassificationRank(race), expected.getRidersGeneralClassificationRank(expectedIds[1])), true);
+        assertEqual(Arrays.equals(c.getRidersPointsInRace(race), expected.getRidersPointsInRace(expectedIds[1])), true);
+        assertEqual(Arrays.equals(c.getGeneralClassificationTimesInRace(race), expected.getGeneralClassificationTimesInRace(expectedIds[1])), true);
+        assertEqual(c.getPortalStats().getTotalResultCount() == 2 * RIDERS, true);
+        return null;
+    }
+
+    // One race per feed, all ridden by the same riders, with a stage each
+    private static int[] setUpRaces(CyclingPortalInterface c, int races) throws Exception {
+        int team = c.createTeam("Striped team", null);
+        int[] stages = new int[races];
+        for (int r = 0; r < races; r++) {
+            int race = c.createRace("Striped race " + r, null);
+            stages[r] = c.addStageToRace(race, "Striped stage " + r, null, 100, LocalDateTime.now(), StageType.FLAT);
+            c.addIntermediateSprintToStage(stages[r], 50);
+            c.concludeStagePreparation(stages[r]);
+        }
+        for (int i = 0; i < RIDERS; i++) c.createRider(team, "Striped " + i, 1990);
+        return stages;
+    }
+
+    private static void registerStage(CyclingPortalInterface c, int[] riders, int stage, int offset) throws Exception {
+        LocalTime s = LocalTime.of(9, 0);
+        for (int i = 0; i < riders.length; i++) {
+            int minutes = (i * 7 + offset) % riders.length;
+            c.registerRiderResultsInStage(stage, riders[i], s, s.plusMinutes(60 + minutes), s.plusMinutes(150 + minutes));
+        }
+    }
+
+    public String testRacesInParallel() throws Exception {
+        ConcurrentCyclingPortal c = new ConcurrentCyclingPortal();
+        int[] stages = setUpRaces(c, 4);
+        int team = c.getTeams()[0];
+        int[] riders = c.getTeamRiders(team);
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] feeds = new Thread[stages.length];
+        for (int r = 0; r < feeds.length; r++) {
+            int feed = r;
+            feeds[r] = new Thread(() -> {
+                try {
+                    registerStage(c, riders, stages[feed], feed);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+        // Adds to the tables, so takes every stripe while the feeds are running
+        Thread signings = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20; i++) c.createRider(c.createTeam("Signing " + i, null), "Signed " + i, 1995);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+
+        for (Thread feed : feeds) feed.start();
+        signings.start();
+        for (Thread feed : feeds) feed.join();
+        signings.join();
+        assertEqual(failure.get(), null);
+        assertEqual(c.getTeams().length, 21);
+
+        CyclingPortal expected = new CyclingPortal();
+        int[] expectedStages = setUpRaces(expected, 4);
+        int[] expectedRiders = expected.getTeamRiders(expected.getTeams()[0]);
+        for (int r = 0; r < expectedStages.length; r++) registerStage(expected, expectedRiders, expectedStages[r], r);
+        int[] races = c.getRaceIds();
+        int[] expectedRaces = expected.getRaceIds();
+        for (int r = 0; r < races.length; r++) {
+            assertEqual(Arrays.equals(c.getRidersGeneralClassificationRank(races[r]), expected.getRidersGeneralClassificationRank(expectedRaces[r])), true);
+            assertEqual(Arrays.equals(c.getRidersPointsInRace(races[r]), expected.getRidersPointsInRace(expectedRaces[r])), true);
+        }
+
+        // Each rider's record of the stages they have results in survived the parallel feeds
+        c.removeRider(riders[0]);
+        for (int stage : stages) assertEqual(c.getRidersRankInStage(stage).length, RIDERS - 1);
+        return null;
+    }
+
+    public String testSaveAndLoad() throws Exception {
+        ConcurrentCyclingPortal c = new ConcurrentCyclingPortal();
+        int[] ids = setUp(c);
+        int[] ranks = c.getRidersGeneralClassificationRank(ids[1]);
+        String savePath = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        c.saveCyclingPortal(savePath);
+
+        c.eraseCyclingPortal();
+        assertEqual(c.getRaceIds().length, 0);
+
+        c.loadCyclingPortal(savePath);
+        assertEqual(Arrays.equals(c.getRidersGeneralClassificationRank(ids[1]), ranks), true);
+
+        // Saved by the wrapped portal, so a plain portal reads it too
+        CyclingPortal plain = new CyclingPortal();
+        plain.loadCyclingPortal(savePath);
+        assertEqual(Arrays.equals(plain.getRidersGeneralClassificationRank(ids[1]), ranks), true);
+        return null;
+    }
+
+    public String testTornMapLookupFinishes() throws Exception {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "one");
+        // What an unsynchronised reader can see mid rehash: a table with neither the key nor a free slot
+        Field keys = IntObjectMap.class.getDeclaredField("keys");
+        keys.setAccessible(true);
+        Arrays.fill((int[]) keys.get(map), 5);
+
+        AtomicReference<Object> found = new AtomicReference<>("not looked up");
+        Thread lookup = new Thread(() -> found.set(map.get(7)));
+        lookup.setDaemon(true);
+        lookup.start();
+        lookup.join(5_000);
+        if (lookup.isAlive()) return "Lookup in a torn table never finished";
+        assertEqual(found.get(), null);
+        return null;
+    }
+
+    public String testStagesResolvedDuringGrowth() throws Exception {
+        ConcurrentCyclingPortal c = new ConcurrentCyclingPortal();
+        int race = c.createRace("Fixed race", null);
+        int[] stages = new int[8];
+        int[] sprints = new int[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = c.addStageToRace(race, "Fixed " + i, null, 100 + i, LocalDateTime.now(), StageType.FLAT);
+            sprints[i] = c.addIntermediateSprintToStage(stages[i], 50);
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        // Grows the tables and the shared pool, and removes enough races for them to compact themselves
+        Thread writer = new Thread(() -> {
+            try {
+                int[] added = new int[200];
+                for (int i = 0; i < added.length; i++) {
+                    added[i] = c.createRace("Growing " + i, null);
+                    for (int j = 0; j < 3; j++) {
+                        int stage = c.addStageToRace(added[i], "Growing " + i + "." + j, null, 100, LocalDateTime.now(), StageType.FLAT);
+                        c.addIntermediateSprintToStage(stage, 50);
+                    }
+                    if (i >= 20) c.removeRaceById(added[i - 20]);
+                    Thread.yield();
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    while (writer.isAlive() && failure.get() == null) {
+                        for (int i = 0; i < stages.length; i++) {
+                            if (c.getStageLength(stages[i]) != 100 + i) throw new IllegalStateException("Wrong length");
+                            if (!Arrays.equals(c.getStageSegments(stages[i]), new int[]{sprints[i]})) {
+                                throw new IllegalStateException("Wrong segments");
+                            }
+                            if (c.getRidersRankInStage(stages[i]).length != 0) throw new IllegalStateException("Wrong ranks");
+                        }
+                        Thread.yield();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers[r].setDaemon(true);
+        }
+
+        writer.setDaemon(true);
+        for (Thread reader : readers) reader.start();
+        writer.start();
+        writer.join(60_000);
+        for (Thread reader : readers) reader.join(10_000);
+        if (writer.isAlive()) return "Writer never finished";
+        for (Thread reader : readers) {
+            if (reader.isAlive()) return "Reader never finished";
+        }
+        assertEqual(failure.get(), null);
+        assertEqual(c.getRaceIds().length, 21);
+        return null;
+    }
+}
@@ -2,7 +2,11 @@ package testing.test_cases;
 
 import cycling.*;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
 
 @SuppressWarnings({"SameReturnValue", "SpellCheckingInspection"})
 public class TestGetStageSegments extends testing.TestCase{
@@ -30,4 +34,45 @@ public class TestGetStageSegments extends testing.TestCase{
     }
 
 
+
+    public String testManySegmentsAcrossStages() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, AssertError, IOException, ClassNotFoundException {
+        CyclingPortal c = new CyclingPortal();
+        int race = c.createRace("Segment race", null);
+        int[] stages = new int[10];
+        int[][] expected = new int[stages.length][];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = c.addStageToRace(race, "Segment stage " + i, null, 200, LocalDateTime.now(), StageType.HIGH_MOUNTAIN);
+        }
+        // Interleave the stages so their segment IDs are mixed together
+        for (int round = 0; round < 30; round++) {
+            for (int i = 0; i < stages.length; i++) {
+                if (round % 2 == 0) c.addIntermediateSprintToStage(stages[i], round);
+                else c.addCategorizedClimbToStage(stages[i], (double) round, SegmentType.C3, 4d, 2d);
+            }
+        }
+        for (int i = 0; i < stages.length; i++) {
+            int[] segments = c.getStageSegments(stages[i]);
+            c.removeSegment(segments[3]);
+            expected[i] = c.getStageSegments(stages[i]);
+            assertEqual(expected[i].length, 29);
+            assertEqual(expected[i][3] == segments[4], true);
+            for (int segment : expected[i]) assertEqual(c.getSegmentStage(segment) == stages[i], true);
+        }
+
+        c.removeStageById(stages[0]);
+        try {
+            c.getSegmentStage(expected[0][0]);
+            return "segment of a removed stage was still found";
+        } catch (IDNotRecognisedException e) {
+            // Expected
+        }
+
+        String savePath = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        c.saveCyclingPortal(savePath);
+        c.loadCyclingPortal(savePath);
+        for (int i = 1; i < stages.length; i++) {
+            assertEqual(Arrays.equals(c.getStageSegments(stages[i]), expected[i]), true);
+        }
+        return null;
+    }
 }
@@ -0,0 +1,121 @@
+package testing.test_cases;
+
+import cycling.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@SuppressWarnings("SameReturnValue")
+public class TestIDLookup extends testing.TestCase {
+    final CyclingPortal c = new CyclingPortal();
+
+    public String testLookupAfterRemoveAndLoad() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, InvalidLengthException, AssertError, IOException, ClassNotFoundException {
+        int team1 = c.createTeam("Lookup one", null);
+        int team2 = c.createTeam("Lookup two", null);
+        int team3 = c.createTeam("Lookup three", null);
+        int rider = c.createRider(team3, "Looked up", 1999);
+
+        int race = c.createRace("Lookup race", null);
+        int stage1 = c.addStageToRace(race, "Lookup stage 1", null, 10, LocalDateTime.now(), StageType.FLAT);
+        int stage2 = c.addStageToRace(race, "Lookup stage 2", null, 10, LocalDateTime.now(), StageType.FLAT);
+
+        // Removing from the middle must not disturb the other entries
+        c.removeTeam(team2);
+        c.removeStageById(stage1);
+        try {
+            c.getTeamRiders(team2);
+            return "removed team was still found";
+        } catch (IDNotRecognisedException e) {
+            // Expected
+        }
+        assertEqual(c.getTeamRiders(team1).length, 0);
+        assertEqual(c.getTeamRiders(team3)[0], rider);
+        assertEqual(c.getRaceStages(race).length, 1);
+        assertEqual(c.getRaceStages(race)[0], stage2);
+
+        // Indexes are rebuilt on load
+        String savePath = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        c.saveCyclingPortal(savePath);
+        c.eraseCyclingPortal();
+        try {
+            c.getStageLength(stage2);
+            return "stage was still found after erase";
+        } catch (IDNotRecognisedException e) {
+            // Expected
+        }
+        c.loadCyclingPortal(savePath);
+        assertEqual(c.getTeamRiders(team3)[0], rider);
+        assertEqual(c.getStageLength(stage2) == 10, true);
+        return null;
+    }
+
+    public String testParentLookups() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, InvalidLengthException, InvalidLocationException, InvalidStageStateException, InvalidStageTypeException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Parent team", null);
+        int rider = c.createRider(team, "Child rider", 1999);
+        int race = c.createRace("Parent race", null);
+        int stage1 = c.addStageToRace(race, "Parent stage one", null, 10, LocalDateTime.now(), StageType.FLAT);
+        int stage2 = c.addStageToRace(race, "Parent stage two", null, 10, LocalDateTime.now(), StageType.FLAT);
+        int segment1 = c.addIntermediateSprintToStage(stage1, 5);
+        int segment2 = c.addIntermediateSprintToStage(stage2, 5);
+        int segment3 = c.addIntermediateSprintToStage(stage2, 7);
+
+        assertEqual(c.getRiderTeam(rider), team);
+        assertEqual(c.getStageRace(stage2), race);
+        assertEqual(c.getSegmentStage(segment1), stage1);
+        assertEqual(c.getSegmentStage(segment3), stage2);
+
+        c.removeSegment(segment2);
+        assertEqual(c.getStageSegments(stage2).length, 1);
+        assertEqual(c.getStageSegments(stage2)[0], segment3);
+        c.removeStageById(stage1);
+        assertEqual(c.getRaceStages(race).length, 1);
+        c.removeRider(rider);
+        assertEqual(c.getTeamRiders(team).length, 0);
+        try {
+            c.getSegmentStage(segment1);
+            return "segment of a removed stage was still found";
+        } catch (IDNotRecognisedException e) {
+            // Expected
+        }
+        return null;
+    }
+
+    public String testIdSequences() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, AssertError, IOException, ClassNotFoundException {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Sequence team", null);
+        int first = c.createRider(team, "First", 1990);
+        int second = c.createRider(team, "Second", 1990);
+
+        // IDs are not reused after a removal, even of the newest rider
+        c.removeRider(second);
+        int third = c.createRider(team, "Third", 1990);
+        assertEqual(third, second + 1);
+
+        int[] block = c.createRiders(team, new String[]{"Bulk one", "Bulk two", "Bulk three"}, new int[]{1990, 1991, 1992});
+        assertEqual(block.length, 3);
+        assertEqual(block[0], third + 1);
+        assertEqual(block[2], third + 3);
+        assertEqual(c.getRiderTeam(block[1]), team);
+        try {
+            c.createRiders(team, new String[]{"Bulk four", null}, new int[]{1990, 1990});
+            return "rider with no name was accepted";
+        } catch (IllegalArgumentException e) {
+            // Expected, and none of the riders were created
+        }
+        assertEqual(c.getTeamRiders(team).length, 5);
+
+        // The counters are saved, so IDs carry on after a load
+        c.removeRider(block[2]);
+        String savePath = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        c.saveCyclingPortal(savePath);
+        c.eraseCyclingPortal();
+        assertEqual(c.createTeam("Fresh team", null), 1);
+        c.loadCyclingPortal(savePath);
+        assertEqual(c.createRider(team, "After load", 1990), block[2] + 1);
+        assertEqual(c.getRiderTeam(first), team);
+        return null;
+    }
+}
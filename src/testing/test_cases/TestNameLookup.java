@@ -0,0 +1,107 @@
+package testing.test_cases;
+
+import cycling.*;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+@SuppressWarnings("SameReturnValue")
+public class TestNameLookup extends testing.TestCase {
+    public String testNamesFollowCreateAndRemove() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, InvalidLengthException, NameNotRecognisedException, AssertError, IOException, ClassNotFoundException {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Named team", null);
+        int race = c.createRace("Named race", null);
+        int stage = c.addStageToRace(race, "Named stage", null, 10, LocalDateTime.now(), StageType.FLAT);
+        assertEqual(c.getTeamIdByName("Named team"), team);
+        assertEqual(c.getRaceIdByName("Named race"), race);
+
+        try {
+            c.addStageToRace(race, "Named stage", null, 10, LocalDateTime.now(), StageType.FLAT);
+            return "duplicate stage name was accepted";
+        } catch (IllegalNameException e) {
+            // Expected
+        }
+        try {
+            c.createTeam("Named team", null);
+            return "duplicate team name was accepted";
+        } catch (IllegalNameException e) {
+            // Expected
+        }
+
+        // Names are free again once their owner is removed
+        c.removeStageById(stage);
+        c.addStageToRace(race, "Named stage", null, 10, LocalDateTime.now(), StageType.FLAT);
+        c.removeTeam(team);
+        int newTeam = c.createTeam("Named team", null);
+        assertEqual(c.getTeamIdByName("Named team"), newTeam);
+        c.removeRaceByName("Named race");
+        try {
+            c.getRaceIdByName("Named race");
+            return "removed race was still found by name";
+        } catch (NameNotRecognisedException e) {
+            // Expected
+        }
+        // Stages go with their race
+        c.createRace("Named race", null);
+        int otherRace = c.getRaceIdByName("Named race");
+        c.addStageToRace(otherRace, "Named stage", null, 10, LocalDateTime.now(), StageType.FLAT);
+
+        String savePath = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        c.saveCyclingPortal(savePath);
+        c.eraseCyclingPortal();
+        try {
+            c.getTeamIdByName("Named team");
+            return "team was still found by name after erase";
+        } catch (NameNotRecognisedException e) {
+            // Expected
+        }
+        c.loadCyclingPortal(savePath);
+        assertEqual(c.getTeamIdByName("Named team"), newTeam);
+        assertEqual(c.getRaceIdByName("Named race"), otherRace);
+        return null;
+    }
+
+    public String testPortalReadBackDirectly() throws Exception {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Saved team", null);
+        int race = c.createRace("Saved race", null);
+        int stage = c.addStageToRace(race, "Saved stage", null, 10, LocalDateTime.now(), StageType.FLAT);
+        c.concludeStagePreparation(stage);
+        LocalTime s = LocalTime.of(9, 0);
+        int first = c.createRider(team, "Saved one", 1990);
+        int second = c.createRider(team, "Saved two", 1990);
+        c.registerRiderResultsInStage(stage, first, s, s.plusMinutes(90));
+        c.registerRiderResultsInStage(stage, second, s, s.plusMinutes(80));
+
+        String savePath = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        c.saveCyclingPortal(savePath);
+        // The saved file is the portal itself, so it can be read without loadCyclingPortal
+        CyclingPortal read;
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(savePath))) {
+            read = (CyclingPortal) in.readObject();
+        }
+
+        assertEqual(read.getRaceIdByName("Saved race"), race);
+        assertEqual(read.getTeamIdByName("Saved team"), team);
+        assertEqual(Arrays.equals(read.getRidersRankInStage(stage), new int[]{second, first}), true);
+        assertEqual(Arrays.equals(read.getRidersGeneralClassificationRank(race), new int[]{second, first}), true);
+        int newTeam = read.createTeam("Another team", null);
+        read.createRider(newTeam, "Saved three", 1990);
+        assertEqual(read.getTeamRiders(newTeam).length, 1);
+        try {
+            read.createTeam("Saved team", null);
+            return "duplicate team name was accepted after reading back";
+        } catch (IllegalNameException e) {
+            // Expected
+        }
+        assertEqual(read.getPortalStats().getRiderCount(), 3);
+        assertEqual(read.publishSnapshot().getTeams().length, 2);
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+package testing.test_cases;
+
+import cycling.*;
+import cycling.types.PersistentIntMap;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+@SuppressWarnings("SameReturnValue")
+public class TestPortalSnapshot extends testing.TestCase {
+    public String testPersistentIntMap() throws AssertError {
+        PersistentIntMap<String> empty = PersistentIntMap.empty();
+        PersistentIntMap<String> one = empty.with(3, "three");
+        PersistentIntMap<String> two = one.with(1_000_000, "million").with(40, "forty");
+        PersistentIntMap<String> removed = two.without(3);
+
+        // Every version stays as it was
+        assertEqual(empty.size(), 0);
+        assertEqual(one.size(), 1);
+        assertEqual(one.get(40), null);
+        assertEqual(two.get(3), "three");
+        assertEqual(two.get(1_000_000), "million");
+        assertEqual(removed.get(3), null);
+        assertEqual(removed.get(40), "forty");
+        assertEqual(removed.without(3), removed);
+        assertEqual(Arrays.equals(two.keys(), new int[]{3, 40, 1_000_000}), true);
+        assertEqual(Arrays.equals(removed.keys(), new int[]{40, 1_000_000}), true);
+        assertEqual(two.get(Integer.MAX_VALUE), null);
+        assertEqual(two.with(Integer.MAX_VALUE, "max").get(Integer.MAX_VALUE), "max");
+        return null;
+    }
+
+    public String testAnswersMatchPortal() throws Exception {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Snapshot team", null);
+        int race = c.createRace("Snapshot race", "Published");
+        int stage = c.addStageToRace(race, "Snapshot stage", null, 100, LocalDateTime.now(), StageType.HIGH_MOUNTAIN);
+        c.addCategorizedClimbToStage(stage, 40.0, SegmentType.C1, 6.0, 8.0);
+        c.addIntermediateSprintToStage(stage, 70);
+        c.concludeStagePreparation(stage);
+        LocalTime s = LocalTime.of(9, 0);
+        int[] riders = new int[6];
+        for (int i = 0; i < riders.length; i++) {
+            riders[i] = c.createRider(team, "Snapshot " + i, 1990);
+            c.registerRiderResultsInStage(stage, riders[i], s, s.plusMinutes(50 - i), s.plusMinutes(80 + i), s.plusMinutes(180 + i % 3));
+        }
+
+        PortalSnapshot snapshot = c.publishSnapshot();
+        assertEqual(c.getSnapshot(), snapshot);
+        assertEqual(Arrays.equals(snapshot.getRaceIds(), c.getRaceIds()), true);
+        assertEqual(snapshot.viewRaceDetails(race).equals(c.viewRaceDetails(race)), true);
+        assertEqual(snapshot.getNumberOfStages(race), 1);
+        assertEqual(Arrays.equals(snapshot.getRaceStages(race), c.getRaceStages(race)), true);
+        assertEqual(snapshot.getStageLength(stage) == c.getStageLength(stage), true);
+        assertEqual(Arrays.equals(snapshot.getStageSegments(stage), c.getStageSegments(stage)), true);
+        assertEqual(Arrays.equals(snapshot.getTeams(), c.getTeams()), true);
+        assertEqual(Arrays.equals(snapshot.getTeamRiders(team), c.getTeamRiders(team)), true);
+        assertEqual(Arrays.equals(snapshot.getRiderResultsInStage(stage, riders[2]), c.getRiderResultsInStage(stage, riders[2])), true);
+        assertEqual(snapshot.getRiderAdjustedElapsedTimeInStage(stage, riders[2]).equals(c.getRiderAdjustedElapsedTimeInStage(stage, riders[2])), true);
+        assertEqual(Arrays.equals(snapshot.getRidersRankInStage(stage), c.getRidersRankInStage(stage)), true);
+        assertEqual(Arrays.equals(snapshot.getRankedAdjustedElapsedTimesInStage(stage), c.getRankedAdjustedElapsedTimesInStage(stage)), true);
+        assertEqual(Arrays.equals(snapshot.getRidersPointsInStage(stage), c.getRidersPointsInStage(stage)), true);
+        assertEqual(Arrays.equals(snapshot.getRidersMountainPointsInStage(stage), c.getRidersMountainPointsInStage(stage)), true);
+        assertEqual(Arrays.equals(snapshot.getRidersGeneralClassificationRank(race), c.getRidersGeneralClassificationRank(race)), true);
+        assertEqual(Arrays.equals(snapshot.getGeneralClassificationTimesInRace(race), c.getGeneralClassificationTimesInRace(race)), true);
+        assertEqual(Arrays.equals(snapshot.getRidersPointsInRace(race), c.getRidersPointsInRace(race)), true);
+        assertEqual(Arrays.equals(snapshot.getRidersMountainPointsInRace(race), c.getRidersMountainPointsInRace(race)), true);
+        assertEqual(Arrays.equals(snapshot.getRidersPointClassificationRank(race), c.getRidersPointClassificationRank(race)), true);
+        assertEqual(Arrays.equals(snapshot.getRidersMountainPointClassificationRank(race), c.getRidersMountainPointClassificationRank(race)), true);
+
+        // Later changes only show up once published again
+        c.removeRider(riders[0]);
+        c.removeRaceById(race);
+        assertEqual(snapshot.getRidersRankInStage(stage).length, 6);
+        assertEqual(snapshot.getRaceIds().length, 1);
+
+        PortalSnapshot next = c.publishSnapshot();
+        assertEqual(next.getRaceIds().length, 0);
+        assertEqual(next.getTeamRiders(team).length, 5);
+        try {
+            next.getRidersRankInStage(stage);
+            return "Removed stage still in the snapshot";
+        } catch (IDNotRecognisedException ignored) {
+        }
+        try {
+            next.getRiderResultsInStage(stage, riders[0]);
+            return "Removed rider still in the snapshot";
+        } catch (IDNotRecognisedException ignored) {
+        }
+        assertEqual(next.getRiderResultsInStage(stage, riders[1]), null);
+
+        // Erasing starts the next snapshot from scratch
+        c.eraseCyclingPortal();
+        assertEqual(c.getSnapshot(), next);
+        assertEqual(c.publishSnapshot().getTeams().length, 0);
+        return null;
+    }
+
+    public String testLockFreeReaders() throws Exception {
+        ConcurrentCyclingPortal c = new ConcurrentCyclingPortal();
+        int team = c.createTeam("Published team", null);
+        int race = c.createRace("Published race", null);
+        int stage = c.addStageToRace(race, "Published stage", null, 100, LocalDateTime.now(), StageType.FLAT);
+        c.addIntermediateSprintToStage(stage, 50);
+        c.concludeStagePreparation(stage);
+        int[] riders = new int[60];
+        for (int i = 0; i < riders.length; i++) riders[i] = c.createRider(team, "Published " + i, 1990);
+        c.publishSnapshot();
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                LocalTime s = LocalTime.of(9, 0);
+                for (int i = 0; i < riders.length; i++) {
+                    c.registerRiderResultsInStage(stage, riders[i], s, s.plusMinutes(60 - i), s.plusMinutes(150 - i));
+                    // Publishes in batches of five results
+                    if (i % 5 == 4) c.publishSnapshot();
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            try {
+                int seen = 0;
+                while (writer.isAlive() || (seen < riders.length && failure.get() == null)) {
+                    PortalSnapshot snapshot = c.getSnapshot();
+                    int[] ranks = snapshot.getRidersRankInStage(stage);
+                    // Every answer comes from the same published state, which is always a whole batch
+                    if (ranks.length % 5 != 0) throw new IllegalStateException("Partial batch " + ranks.length);
+                    if (ranks.length < seen) throw new IllegalStateException("Went back in time");
+                    if (snapshot.getRidersPointsInStage(stage).length != ranks.length
+                            || snapshot.getRidersGeneralClassificationRank(race).length != ranks.length) {
+                        throw new IllegalStateException("Inconsistent snapshot");
+                    }
+                    seen = ranks.length;
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+
+        reader.start();
+        writer.start();
+        writer.join();
+        reader.join();
+        assertEqual(failure.get(), null);
+        assertEqual(Arrays.equals(c.getSnapshot().getRidersGeneralClassificationRank(race), c.getRidersGeneralClassificationRank(race)), true);
+        return null;
+    }
+}
@@ -0,0 +1,94 @@
+package testing.test_cases;
+
+import cycling.*;
+
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+@SuppressWarnings("SameReturnValue")
+public class TestPortalStats extends testing.TestCase {
+    public String testCountsAndEstimates() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, InvalidLengthException, InvalidLocationException, InvalidStageStateException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal(ScoringTable.TOUR_DE_FRANCE, ResultStorage.OFF_HEAP);
+        PortalStats empty = c.getPortalStats();
+        assertEqual(empty.getRiderCount(), 0);
+        assertEqual(empty.getCacheBytes() > 0, true);
+
+        int team = c.createTeam("Counted team", null);
+        int race = c.createRace("Counted race", null);
+        int stage1 = c.addStageToRace(race, "Counted one", null, 100, LocalDateTime.now(), StageType.FLAT);
+        int stage2 = c.addStageToRace(race, "Counted two", null, 100, LocalDateTime.now(), StageType.FLAT);
+        c.addIntermediateSprintToStage(stage1, 50);
+        c.concludeStagePreparation(stage1);
+        c.concludeStagePreparation(stage2);
+        LocalTime s = LocalTime.of(9, 0);
+        int[] riders = new int[12];
+        for (int i = 0; i < riders.length; i++) {
+            riders[i] = c.createRider(team, "Counted " + i, 1990);
+            c.registerRiderResultsInStage(stage1, riders[i], s, s.plusMinutes(30 + i), s.plusMinutes(90 + i));
+            if (i < 5) c.registerRiderResultsInStage(stage2, riders[i], s, s.plusMinutes(80 + i));
+        }
+        c.removeRider(riders[11]);
+
+        PortalStats before = c.getPortalStats();
+        assertEqual(before.getTeamCount(), 1);
+        assertEqual(before.getRiderCount(), 11);
+        assertEqual(before.getRaceCount(), 1);
+        assertEqual(before.getStageCount(), 2);
+        assertEqual(before.getSegmentCount(), 1);
+        assertEqual(before.getRemovedEntityCount(), 1);
+        assertEqual(Arrays.equals(before.getStageIds(), new int[]{stage1, stage2}), true);
+        assertEqual(Arrays.equals(before.getResultCounts(), new int[]{11, 5}), true);
+        assertEqual(before.getTotalResultCount() == 16, true);
+        assertEqual(before.getOffHeapResultBytes() >= 16 * 2 * Long.BYTES, true);
+        assertEqual(before.getRiderBytes() > empty.getRiderBytes(), true);
+
+        // Computing a classification fills the caches
+        c.getRidersGeneralClassificationRank(race);
+        PortalStats after = c.getPortalStats();
+        assertEqual(after.getCacheBytes() > before.getCacheBytes(), true);
+        assertEqual(after.getTotalHeapBytes() > before.getTotalHeapBytes(), true);
+
+        c.compactCyclingPortal();
+        assertEqual(c.getPortalStats().getRemovedEntityCount(), 0);
+        return null;
+    }
+
+    public String testRunningTotalsMatchRecount() throws Exception {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Recounted team", null);
+        int race = c.createRace("Recounted race", null);
+        int[] stages = new int[3];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = c.addStageToRace(race, "Recounted " + i, null, 100, LocalDateTime.now(), StageType.FLAT);
+            c.concludeStagePreparation(stages[i]);
+        }
+        LocalTime s = LocalTime.of(9, 0);
+        int[] riders = c.createRiders(team, new String[]{"A", "B", "C", "D", "E", "F", "G", "H"}, new int[]{1990, 1990, 1990, 1990, 1990, 1990, 1990, 1990});
+        for (int stage : stages) {
+            for (int i = 0; i < riders.length; i++) c.registerRiderResultsInStage(stage, riders[i], s, s.plusMinutes(60 + i));
+            // Keeps the race's standings up to date as the rest are changed
+            c.getRidersGeneralClassificationRank(race);
+        }
+        c.deleteRiderResultsInStage(stages[0], riders[3]);
+        c.removeRider(riders[5]);
+        c.removeStageById(stages[2]);
+        c.getRidersGeneralClassificationRank(race);
+        PortalStats before = c.getPortalStats();
+
+        // Loading counts everything again from scratch
+        String filename = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        c.saveCyclingPortal(filename);
+        c.loadCyclingPortal(filename);
+        c.getRidersGeneralClassificationRank(race);
+        PortalStats after = c.getPortalStats();
+        assertEqual(after.getRiderBytes() == before.getRiderBytes(), true);
+        assertEqual(after.getCacheBytes() == before.getCacheBytes(), true);
+
+        c.removeRaceById(race);
+        assertEqual(c.getPortalStats().getCacheBytes() < after.getCacheBytes(), true);
+        return null;
+    }
+}
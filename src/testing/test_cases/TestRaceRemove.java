@@ -2,6 +2,8 @@ package testing.test_cases;
 
 import cycling.*;
 
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 public class TestRaceRemove extends testing.TestCase {
     final CyclingPortal r1 = new CyclingPortal();
@@ -56,4 +58,51 @@ public class TestRaceRemove extends testing.TestCase {
             return null;
         }
     }
+
+    public String testRemoveRaceCascades() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, InvalidLengthException, InvalidLocationException, InvalidStageStateException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Cascade team", null);
+        int rider = c.createRider(team, "Cascade rider", 1990);
+        int[] races = new int[3];
+        int[] lastStage = new int[3];
+        int[] lastSegment = new int[3];
+        LocalTime s = LocalTime.of(9, 0);
+        for (int r = 0; r < races.length; r++) {
+            races[r] = c.createRace("Cascade race " + r, null);
+            for (int i = 0; i < 4; i++) {
+                lastStage[r] = c.addStageToRace(races[r], "Cascade " + r + " " + i, null, 50, LocalDateTime.now(), StageType.FLAT);
+                lastSegment[r] = c.addIntermediateSprintToStage(lastStage[r], 20);
+                c.concludeStagePreparation(lastStage[r]);
+                c.registerRiderResultsInStage(lastStage[r], rider, s, s.plusHours(1), s.plusHours(2));
+            }
+        }
+
+        c.removeRaceById(races[1]);
+        assertEqual(c.getRaceIds().length, 2);
+        try {
+            c.getStageLength(lastStage[1]);
+            return "stage of a removed race was still found";
+        } catch (IDNotRecognisedException e) {
+            // Expected
+        }
+        try {
+            c.getSegmentStage(lastSegment[1]);
+            return "segment of a removed race was still found";
+        } catch (IDNotRecognisedException e) {
+            // Expected
+        }
+        // Other races are untouched
+        for (int r : new int[]{0, 2}) {
+            assertEqual(c.getRaceStages(races[r]).length, 4);
+            assertEqual(c.getSegmentStage(lastSegment[r]), lastStage[r]);
+            assertEqual(c.getRiderResultsInStage(lastStage[r], rider).length, 3);
+            assertEqual(c.getRidersGeneralClassificationRank(races[r])[0], rider);
+        }
+
+        c.removeStageById(lastStage[2]);
+        assertEqual(c.getRaceStages(races[2]).length, 3);
+        assertEqual(c.getRiderResultsInStage(lastStage[2], rider), null);
+        assertEqual(c.getGeneralClassificationNanosInRace(races[2])[0] == 3 * 2 * 3_600_000_000_000L, true);
+        return null;
+    }
 }
@@ -1,9 +1,9 @@
 package testing.test_cases;
 
-import cycling.CyclingPortal;
-import cycling.IDNotRecognisedException;
-import cycling.IllegalNameException;
-import cycling.InvalidNameException;
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 @SuppressWarnings("SpellCheckingInspection")
 public class TestRiderRemove extends testing.TestCase {
@@ -28,4 +28,53 @@ public class TestRiderRemove extends testing.TestCase {
             return null;
         }
     }
+
+    public String testRemoveRiderRemovesResults() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, InvalidLengthException, InvalidStageStateException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        int teamID = c.createTeam("Team with results", null);
+        int rider1 = c.createRider(teamID, "First finisher", 1990);
+        int rider2 = c.createRider(teamID, "Second finisher", 1991);
+
+        int raceID = c.createRace("Race with results", null);
+        int stageID = c.addStageToRace(raceID, "Stage with results", null, 10, LocalDateTime.now(), StageType.FLAT);
+        c.concludeStagePreparation(stageID);
+        c.registerRiderResultsInStage(stageID, rider1, LocalTime.of(10, 0), LocalTime.of(11, 0));
+        c.registerRiderResultsInStage(stageID, rider2, LocalTime.of(10, 0), LocalTime.of(11, 30));
+        assertEqual(c.getRidersRankInStage(stageID).length, 2);
+
+        c.removeRider(rider1);
+        int[] rank = c.getRidersRankInStage(stageID);
+        assertEqual(rank.length, 1);
+        assertEqual(rank[0], rider2);
+        return null;
+    }
+
+    public String testPruneManyRiders() throws InvalidNameException, IllegalNameException, IDNotRecognisedException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Amateur pool", null);
+        int[] riders = new int[500];
+        for (int i = 0; i < riders.length; i++) riders[i] = c.createRider(team, "Amateur " + i, 2000);
+
+        // Enough removals for the tables to compact themselves part way through
+        for (int i = 0; i < riders.length; i++) {
+            if (i % 5 != 0) c.removeRider(riders[i]);
+        }
+        assertEqual(c.getTeamRiders(team).length, 100);
+        for (int i = 0; i < riders.length; i += 5) {
+            assertEqual(c.getRiderTeam(riders[i]), team);
+        }
+        try {
+            c.getRiderTeam(riders[1]);
+            return "removed rider was still found";
+        } catch (IDNotRecognisedException e) {
+            // Expected
+        }
+
+        c.removeRider(riders[5]);
+        c.compactCyclingPortal();
+        assertEqual(c.getTeamRiders(team).length, 99);
+        assertEqual(c.getRiderTeam(riders[10]), team);
+        int newRider = c.createRider(team, "Late amateur", 2000);
+        assertEqual(c.getRiderTeam(newRider), team);
+        return null;
+    }
 }
@@ -0,0 +1,84 @@
+package testing.test_cases;
+
+import cycling.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+@SuppressWarnings("SameReturnValue")
+public class TestRiderResults extends testing.TestCase {
+    public String testResultsRoundTrip() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        return checkRoundTrip(new CyclingPortal());
+    }
+
+    public String testOffHeapResultsRoundTrip() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        return checkRoundTrip(new CyclingPortal(ScoringTable.TOUR_DE_FRANCE, ResultStorage.OFF_HEAP));
+    }
+
+    public String testLoadIntoOtherStorage() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError, IOException, ClassNotFoundException {
+        CyclingPortal offHeap = new CyclingPortal(ScoringTable.TOUR_DE_FRANCE, ResultStorage.OFF_HEAP);
+        int team = offHeap.createTeam("Archive", null);
+        int rider = offHeap.createRider(team, "Archived", 1990);
+        int race = offHeap.createRace("Archive race", null);
+        int stage = offHeap.addStageToRace(race, "Archive stage", null, 100, LocalDateTime.now(), StageType.FLAT);
+        offHeap.concludeStagePreparation(stage);
+        LocalTime s = LocalTime.of(10, 0);
+        LocalTime[] times = {s, s.plusSeconds(3600).plusNanos(5)};
+        offHeap.registerRiderResultsInStage(stage, rider, times);
+
+        String savePath = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        offHeap.saveCyclingPortal(savePath);
+        offHeap.eraseCyclingPortal();
+        assertEqual(offHeap.getRaceIds().length, 0);
+
+        CyclingPortal heap = new CyclingPortal();
+        heap.loadCyclingPortal(savePath);
+        assertEqual(Arrays.equals(heap.getRiderResultsInStage(stage, rider), times), true);
+        offHeap.loadCyclingPortal(savePath);
+        assertEqual(Arrays.equals(offHeap.getRiderResultsInStage(stage, rider), times), true);
+        return null;
+    }
+
+    private String checkRoundTrip(CyclingPortal c) throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        int team = c.createTeam("Results", null);
+        int race = c.createRace("Results race", null);
+        int stage = c.addStageToRace(race, "Results stage", null, 100, LocalDateTime.now(), StageType.FLAT);
+        c.addIntermediateSprintToStage(stage, 50);
+        c.concludeStagePreparation(stage);
+
+        LocalTime s = LocalTime.of(10, 0);
+        int[] riders = new int[20];
+        LocalTime[][] times = new LocalTime[riders.length][];
+        // Registered in reverse ID order so every result is inserted ahead of the others
+        for (int i = riders.length - 1; i >= 0; i--) {
+            riders[i] = c.createRider(team, "Result " + i, 1990);
+        }
+        for (int i = riders.length - 1; i >= 0; i--) {
+            times[i] = new LocalTime[]{s, s.plusSeconds(1000 + i).plusNanos(i), s.plusSeconds(4000 - i)};
+            c.registerRiderResultsInStage(stage, riders[i], times[i]);
+        }
+
+        c.deleteRiderResultsInStage(stage, riders[5]);
+        c.removeRider(riders[10]);
+        for (int i = 0; i < riders.length; i++) {
+            if (i == 5 || i == 10) continue;
+            assertEqual(Arrays.equals(c.getRiderResultsInStage(stage, riders[i]), times[i]), true);
+        }
+        assertEqual(c.getRiderResultsInStage(stage, riders[5]), null);
+        assertEqual(c.getRidersRankInStage(stage).length, riders.length - 2);
+
+        try {
+            c.registerRiderResultsInStage(stage, riders[0], times[0]);
+            return "duplicate result was accepted";
+        } catch (DuplicatedResultException e) {
+            // Expected
+        }
+        c.registerRiderResultsInStage(stage, riders[5], times[5]);
+        assertEqual(Arrays.equals(c.getRiderResultsInStage(stage, riders[5]), times[5]), true);
+        return null;
+    }
+}
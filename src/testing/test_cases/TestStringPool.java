@@ -0,0 +1,19 @@
+package testing.test_cases;
+
+import cycling.types.StringPool;
+
+@SuppressWarnings("SameReturnValue")
+public class TestStringPool extends testing.TestCase {
+    public String testInternReturnsOneInstance() throws AssertError {
+        StringPool pool = new StringPool();
+        String first = new String("flat stage through the lowlands");
+        String second = new String("flat stage through the lowlands");
+
+        assertEqual(pool.intern(first), first);
+        assertEqual(pool.intern(second), first);
+        assertEqual(pool.intern(null), null);
+        assertEqual(pool.intern("another description").equals("another description"), true);
+        assertEqual(pool.size(), 2);
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@SuppressWarnings("SameReturnValue")
+public class TestAdjustedElapsedTimes extends testing.TestCase {
+    public String testPelotonChain() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Peloton", null);
+        int r1 = c.createRider(team, "Front", 1990);
+        int r2 = c.createRider(team, "Middle", 1990);
+        int r3 = c.createRider(team, "Back", 1990);
+        int r4 = c.createRider(team, "Dropped", 1990);
+
+        int race = c.createRace("Chain race", null);
+        int stage = c.addStageToRace(race, "Chain stage", null, 100, LocalDateTime.now(), StageType.FLAT);
+        c.concludeStagePreparation(stage);
+
+        LocalTime start = LocalTime.of(12, 0);
+        LocalTime front = LocalTime.of(14, 0);
+        // Each rider is under a second behind the previous one, so the whole group gets the front time
+        c.registerRiderResultsInStage(stage, r3, start, front.plusNanos(1_400_000_000L));
+        c.registerRiderResultsInStage(stage, r1, start, front);
+        c.registerRiderResultsInStage(stage, r2, start, front.plusNanos(700_000_000L));
+        c.registerRiderResultsInStage(stage, r4, start, front.plusSeconds(3));
+
+        int[] rank = c.getRidersRankInStage(stage);
+        assertEqual(rank[0], r1);
+        assertEqual(rank[1], r2);
+        assertEqual(rank[2], r3);
+        assertEqual(rank[3], r4);
+
+        LocalTime[] times = c.getRankedAdjustedElapsedTimesInStage(stage);
+        assertEqual(times[0].equals(LocalTime.of(2, 0)), true);
+        assertEqual(times[1].equals(LocalTime.of(2, 0)), true);
+        assertEqual(times[2].equals(LocalTime.of(2, 0)), true);
+        assertEqual(times[3].equals(LocalTime.of(2, 0, 3)), true);
+        assertEqual(c.getRiderAdjustedElapsedTimeInStage(stage, r3).equals(LocalTime.of(2, 0)), true);
+        return null;
+    }
+
+    public String testNoAdjustmentInTimeTrial() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Testers", null);
+        int r1 = c.createRider(team, "Quick", 1990);
+        int r2 = c.createRider(team, "Close", 1990);
+
+        int race = c.createRace("TT race", null);
+        int stage = c.addStageToRace(race, "TT stage", null, 20, LocalDateTime.now(), StageType.TT);
+        c.concludeStagePreparation(stage);
+
+        c.registerRiderResultsInStage(stage, r1, LocalTime.of(12, 0), LocalTime.of(12, 30));
+        c.registerRiderResultsInStage(stage, r2, LocalTime.of(12, 5), LocalTime.of(12, 35).plusNanos(500_000_000L));
+
+        LocalTime[] times = c.getRankedAdjustedElapsedTimesInStage(stage);
+        assertEqual(times[0].equals(LocalTime.of(0, 30)), true);
+        assertEqual(times[1].equals(LocalTime.of(0, 30).plusNanos(500_000_000L)), true);
+        return null;
+    }
+}
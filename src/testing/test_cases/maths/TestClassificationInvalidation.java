@@ -0,0 +1,47 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+@SuppressWarnings("SameReturnValue")
+public class TestClassificationInvalidation extends testing.TestCase {
+    public String testClassificationFollowsChanges() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Cache team", null);
+        int r1 = c.createRider(team, "Early", 1990);
+        int r2 = c.createRider(team, "Late", 1990);
+
+        int race = c.createRace("Cache race", null);
+        int stage1 = c.addStageToRace(race, "Cache stage 1", null, 50, LocalDateTime.now(), StageType.FLAT);
+        int stage2 = c.addStageToRace(race, "Cache stage 2", null, 50, LocalDateTime.now(), StageType.FLAT);
+        c.concludeStagePreparation(stage1);
+        c.concludeStagePreparation(stage2);
+
+        c.registerRiderResultsInStage(stage1, r1, LocalTime.of(10, 0), LocalTime.of(11, 0));
+        assertEqual(Arrays.equals(c.getRidersGeneralClassificationRank(race), new int[]{r1}), true);
+
+        // A new result must show up in the next query
+        c.registerRiderResultsInStage(stage1, r2, LocalTime.of(10, 0), LocalTime.of(11, 10));
+        assertEqual(Arrays.equals(c.getRidersGeneralClassificationRank(race), new int[]{r1, r2}), true);
+        assertEqual(Arrays.equals(c.getRidersPointsInRace(race), new int[]{50, 30}), true);
+
+        // r2 takes back 20 minutes on the second stage
+        c.registerRiderResultsInStage(stage2, r1, LocalTime.of(10, 0), LocalTime.of(11, 30));
+        c.registerRiderResultsInStage(stage2, r2, LocalTime.of(10, 0), LocalTime.of(11, 10));
+        assertEqual(Arrays.equals(c.getRidersGeneralClassificationRank(race), new int[]{r2, r1}), true);
+        assertEqual(c.getGeneralClassificationTimesInRace(race)[0].equals(LocalTime.of(2, 20)), true);
+
+        // Riders are only timed in the stages they took part in
+        c.deleteRiderResultsInStage(stage2, r2);
+        assertEqual(Arrays.equals(c.getRidersGeneralClassificationRank(race), new int[]{r2, r1}), true);
+        assertEqual(c.getGeneralClassificationTimesInRace(race)[0].equals(LocalTime.of(1, 10)), true);
+
+        c.removeStageById(stage1);
+        assertEqual(Arrays.equals(c.getRidersGeneralClassificationRank(race), new int[]{r1}), true);
+        assertEqual(Arrays.equals(c.getRidersPointsInRace(race), new int[]{50}), true);
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+@SuppressWarnings("SameReturnValue")
+public class TestGetStageResult extends testing.TestCase {
+    public String testMatchesSeparateQueries() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Scorers", null);
+        int r1 = c.createRider(team, "Climber", 1990);
+        int r2 = c.createRider(team, "Sprinter", 1990);
+        int r3 = c.createRider(team, "Rouleur", 1990);
+
+        int race = c.createRace("Scored race", null);
+        int stage = c.addStageToRace(race, "Scored stage", null, 100, LocalDateTime.now(), StageType.MEDIUM_MOUNTAIN);
+        c.addCategorizedClimbToStage(stage, 30d, SegmentType.C1, 6d, 8d);
+        c.addIntermediateSprintToStage(stage, 60);
+        c.concludeStagePreparation(stage);
+
+        StageResult empty = c.getStageResult(stage);
+        assertEqual(empty.size(), 0);
+
+        LocalTime s = LocalTime.of(9, 0);
+        c.registerRiderResultsInStage(stage, r1, s, s.plusMinutes(50), s.plusMinutes(110), s.plusMinutes(170));
+        c.registerRiderResultsInStage(stage, r2, s, s.plusMinutes(55), s.plusMinutes(100), s.plusMinutes(160));
+        c.registerRiderResultsInStage(stage, r3, s, s.plusMinutes(52), s.plusMinutes(105), s.plusMinutes(165));
+
+        StageResult result = c.getStageResult(stage);
+        assertEqual(result.getStageId(), stage);
+        assertEqual(result.size(), 3);
+        assertEqual(Arrays.equals(result.getRiderIds(), c.getRidersRankInStage(stage)), true);
+        assertEqual(Arrays.equals(result.getAdjustedElapsedTimes(), c.getRankedAdjustedElapsedTimesInStage(stage)), true);
+        assertEqual(Arrays.equals(result.getPoints(), c.getRidersPointsInStage(stage)), true);
+        assertEqual(Arrays.equals(result.getMountainPoints(), c.getRidersMountainPointsInStage(stage)), true);
+
+        // Finish: r2, r3, r1. Climb: r1, r3, r2. Sprint (checkpoint to checkpoint): r2, r3, r1
+        assertEqual(Arrays.equals(result.getRiderIds(), new int[]{r2, r3, r1}), true);
+        assertEqual(Arrays.equals(result.getPoints(), new int[]{30 + 20, 25 + 17, 22 + 15}), true);
+        assertEqual(Arrays.equals(result.getMountainPoints(), new int[]{6, 8, 10}), true);
+
+        // Results are a copy
+        result.getPoints()[0] = -1;
+        assertEqual(result.getPoints()[0], 50);
+        return null;
+    }
+}
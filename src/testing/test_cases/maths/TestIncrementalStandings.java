@@ -0,0 +1,59 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+@SuppressWarnings("SameReturnValue")
+public class TestIncrementalStandings extends testing.TestCase {
+    public String testMatchesFullRecomputation() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError, IOException, ClassNotFoundException {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Incremental", null);
+        int[] riders = new int[12];
+        for (int i = 0; i < riders.length; i++) riders[i] = c.createRider(team, "Rider " + i, 1990);
+
+        int race = c.createRace("Incremental race", null);
+        int[] stages = new int[3];
+        stages[0] = c.addStageToRace(race, "Incremental flat", null, 100, LocalDateTime.now(), StageType.FLAT);
+        stages[1] = c.addStageToRace(race, "Incremental hills", null, 100, LocalDateTime.now(), StageType.HIGH_MOUNTAIN);
+        stages[2] = c.addStageToRace(race, "Incremental TT", null, 30, LocalDateTime.now(), StageType.TT);
+        c.addIntermediateSprintToStage(stages[0], 50);
+        c.addCategorizedClimbToStage(stages[1], 60d, SegmentType.HC, 9d, 12d);
+        for (int stage : stages) c.concludeStagePreparation(stage);
+
+        Random random = new Random(7);
+        String savePath = Paths.get(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString()).toString();
+        for (int step = 0; step < 60; step++) {
+            int stage = stages[random.nextInt(stages.length)];
+            int rider = riders[random.nextInt(riders.length)];
+            if (c.getRiderResultsInStage(stage, rider) != null) {
+                c.deleteRiderResultsInStage(stage, rider);
+            } else {
+                LocalTime start = LocalTime.of(10, 0);
+                // Finishes spread over a few seconds so groups form and split
+                LocalTime finish = start.plusHours(3).plusNanos(random.nextInt(6000) * 1_000_000L);
+                if (stage == stages[2]) c.registerRiderResultsInStage(stage, rider, start, finish);
+                else c.registerRiderResultsInStage(stage, rider, start, start.plusMinutes(random.nextInt(90)), finish);
+            }
+
+            // Query every step so the standings are maintained rather than rebuilt
+            int[] gc = c.getRidersGeneralClassificationRank(race);
+            int[] points = c.getRidersPointsInRace(race);
+
+            CyclingPortal fresh = new CyclingPortal();
+            c.saveCyclingPortal(savePath);
+            fresh.loadCyclingPortal(savePath);
+            assertEqual(Arrays.equals(gc, fresh.getRidersGeneralClassificationRank(race)), true);
+            assertEqual(Arrays.equals(points, fresh.getRidersPointsInRace(race)), true);
+            assertEqual(Arrays.equals(c.getRidersMountainPointClassificationRank(race), fresh.getRidersMountainPointClassificationRank(race)), true);
+            assertEqual(Arrays.equals(c.getGeneralClassificationTimesInRace(race), fresh.getGeneralClassificationTimesInRace(race)), true);
+        }
+        return null;
+    }
+}
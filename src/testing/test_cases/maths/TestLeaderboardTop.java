@@ -0,0 +1,58 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Random;
+
+@SuppressWarnings("SameReturnValue")
+public class TestLeaderboardTop extends testing.TestCase {
+    public String testTopMatchesFullRanking() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Leaders", null);
+        int race = c.createRace("Leaderboard race", null);
+        int stage1 = c.addStageToRace(race, "Leaderboard flat", null, 100, LocalDateTime.now(), StageType.FLAT);
+        int stage2 = c.addStageToRace(race, "Leaderboard climb", null, 100, LocalDateTime.now(), StageType.HIGH_MOUNTAIN);
+        c.addIntermediateSprintToStage(stage1, 40);
+        c.addCategorizedClimbToStage(stage2, 80d, SegmentType.C1, 7d, 10d);
+        c.concludeStagePreparation(stage1);
+        c.concludeStagePreparation(stage2);
+
+        Random random = new Random(3);
+        LocalTime start = LocalTime.of(11, 0);
+        for (int i = 0; i < 40; i++) {
+            int rider = c.createRider(team, "Leader " + i, 1995);
+            for (int stage : new int[]{stage1, stage2}) {
+                c.registerRiderResultsInStage(stage, rider, start,
+                        start.plusSeconds(3000 + random.nextInt(600)),
+                        start.plusSeconds(9000 + random.nextInt(900)));
+            }
+        }
+
+        // Top queries first, so they are answered before any full classification is cached
+        int[] gcTop = c.getRidersGeneralClassificationTop(race, 10);
+        int[] pointsTop = c.getRidersPointClassificationTop(race, 10);
+        int[] mountainTop = c.getRidersMountainPointClassificationTop(race, 10);
+        int[] stageTop = c.getRidersRankInStageTop(stage1, 10);
+
+        assertEqual(Arrays.equals(gcTop, Arrays.copyOf(c.getRidersGeneralClassificationRank(race), 10)), true);
+        assertEqual(Arrays.equals(pointsTop, Arrays.copyOf(c.getRidersPointClassificationRank(race), 10)), true);
+        assertEqual(Arrays.equals(mountainTop, Arrays.copyOf(c.getRidersMountainPointClassificationRank(race), 10)), true);
+        assertEqual(Arrays.equals(stageTop, Arrays.copyOf(c.getRidersRankInStage(stage1), 10)), true);
+
+        // Now answered from the cached classification
+        assertEqual(Arrays.equals(pointsTop, c.getRidersPointClassificationTop(race, 10)), true);
+
+        assertEqual(c.getRidersGeneralClassificationTop(race, 0).length, 0);
+        assertEqual(c.getRidersMountainPointClassificationTop(race, 100).length, 40);
+        try {
+            c.getRidersPointClassificationTop(race, -1);
+            return "negative n was accepted";
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        return null;
+    }
+}
@@ -0,0 +1,44 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+@SuppressWarnings("SameReturnValue")
+public class TestNanosQueries extends testing.TestCase {
+    public String testTimesPastOneDay() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Tourers", null);
+        int r1 = c.createRider(team, "Tourer one", 1990);
+        int r2 = c.createRider(team, "Tourer two", 1990);
+        int race = c.createRace("Long tour", null);
+
+        long hour = 3_600_000_000_000L;
+        LocalTime s = LocalTime.of(6, 0);
+        for (int i = 0; i < 3; i++) {
+            int stage = c.addStageToRace(race, "Long stage " + i, null, 250, LocalDateTime.now(), StageType.FLAT);
+            c.concludeStagePreparation(stage);
+            c.registerRiderResultsInStage(stage, r1, s, s.plusHours(9));
+            c.registerRiderResultsInStage(stage, r2, s, s.plusHours(9).plusSeconds(5));
+
+            long[] stageNanos = c.getRankedAdjustedElapsedNanosInStage(stage);
+            assertEqual(stageNanos[0] == 9 * hour, true);
+            assertEqual(stageNanos[1] == 9 * hour + 5_000_000_000L, true);
+            assertEqual(Arrays.equals(c.getRankedAdjustedElapsedTimesInStage(stage),
+                    new LocalTime[]{LocalTime.of(9, 0), LocalTime.of(9, 0, 5)}), true);
+        }
+
+        // 27 hours, which the LocalTime query can only report modulo a day
+        long[] gc = c.getGeneralClassificationNanosInRace(race);
+        assertEqual(Arrays.equals(gc, new long[]{27 * hour, 27 * hour + 15_000_000_000L}), true);
+        assertEqual(Arrays.equals(c.getGeneralClassificationTimesInRace(race),
+                new LocalTime[]{LocalTime.of(3, 0), LocalTime.of(3, 0, 15)}), true);
+
+        // Copies, not the cached arrays
+        gc[0] = 0;
+        assertEqual(c.getGeneralClassificationNanosInRace(race)[0] == 27 * hour, true);
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+@SuppressWarnings("SameReturnValue")
+public class TestOutputBuffers extends testing.TestCase {
+    public String testOverloadsMatchArrays() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Pollers", null);
+        int race = c.createRace("Polled race", null);
+        int stage = c.addStageToRace(race, "Polled stage", null, 100, LocalDateTime.now(), StageType.MEDIUM_MOUNTAIN);
+        c.addStageToRace(race, "Other polled stage", null, 100, LocalDateTime.now(), StageType.FLAT);
+        c.addCategorizedClimbToStage(stage, 40d, SegmentType.C2, 5d, 4d);
+        c.concludeStagePreparation(stage);
+
+        LocalTime s = LocalTime.of(8, 0);
+        for (int i = 0; i < 6; i++) {
+            int rider = c.createRider(team, "Poller " + i, 1990);
+            c.registerRiderResultsInStage(stage, rider, s, s.plusMinutes(60 - i), s.plusMinutes(200 + 3 * i));
+        }
+
+        int[] ints = new int[10];
+        long[] longs = new long[10];
+        assertEqual(c.getRidersRankInStage(stage, ints), 6);
+        assertEqual(Arrays.equals(Arrays.copyOf(ints, 6), c.getRidersRankInStage(stage)), true);
+        assertEqual(c.getRidersPointsInStage(stage, ints), 6);
+        assertEqual(Arrays.equals(Arrays.copyOf(ints, 6), c.getRidersPointsInStage(stage)), true);
+        assertEqual(c.getRidersMountainPointsInStage(stage, ints), 6);
+        assertEqual(Arrays.equals(Arrays.copyOf(ints, 6), c.getRidersMountainPointsInStage(stage)), true);
+        assertEqual(c.getRaceStages(race, ints), 2);
+        assertEqual(Arrays.equals(Arrays.copyOf(ints, 2), c.getRaceStages(race)), true);
+        assertEqual(c.getRankedAdjustedElapsedNanosInStage(stage, longs), 6);
+        assertEqual(Arrays.equals(Arrays.copyOf(longs, 6), c.getRankedAdjustedElapsedNanosInStage(stage)), true);
+        assertEqual(c.getGeneralClassificationNanosInRace(race, longs), 6);
+        assertEqual(Arrays.equals(Arrays.copyOf(longs, 6), c.getGeneralClassificationNanosInRace(race)), true);
+
+        // Only what fits is written
+        int[] small = new int[3];
+        assertEqual(c.getRidersRankInStage(stage, small), 3);
+        assertEqual(Arrays.equals(small, Arrays.copyOf(c.getRidersRankInStage(stage), 3)), true);
+
+        // Buffers are written from their position, which moves past the values
+        IntBuffer intBuffer = IntBuffer.allocate(8);
+        intBuffer.put(-1);
+        assertEqual(c.getRidersRankInStage(stage, intBuffer), 6);
+        assertEqual(intBuffer.position(), 7);
+        assertEqual(c.getRaceStages(race, intBuffer), 1);
+        assertEqual(intBuffer.get(1), c.getRidersRankInStage(stage)[0]);
+        assertEqual(intBuffer.get(7), c.getRaceStages(race)[0]);
+
+        LongBuffer longBuffer = LongBuffer.allocate(6);
+        assertEqual(c.getGeneralClassificationNanosInRace(race, longBuffer), 6);
+        assertEqual(longBuffer.hasRemaining(), false);
+        assertEqual(c.getRankedAdjustedElapsedNanosInStage(stage, longBuffer), 0);
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Random;
+
+@SuppressWarnings("SameReturnValue")
+public class TestRankingTies extends testing.TestCase {
+    public String testTiedRidersAreKept() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Ties", null);
+        int r1 = c.createRider(team, "Tied one", 1990);
+        int r2 = c.createRider(team, "Tied two", 1990);
+        int r3 = c.createRider(team, "Tied three", 1990);
+
+        int race = c.createRace("Tie race", null);
+        int stage = c.addStageToRace(race, "Tie stage", null, 20, LocalDateTime.now(), StageType.TT);
+        c.concludeStagePreparation(stage);
+
+        // Register out of ID order, equal times are ranked by rider ID
+        c.registerRiderResultsInStage(stage, r3, LocalTime.of(10, 0), LocalTime.of(10, 30));
+        c.registerRiderResultsInStage(stage, r1, LocalTime.of(10, 0), LocalTime.of(10, 30));
+        c.registerRiderResultsInStage(stage, r2, LocalTime.of(10, 0), LocalTime.of(10, 30));
+
+        int[] rank = c.getRidersRankInStage(stage);
+        assertEqual(rank.length, 3);
+        assertEqual(rank[0], r1);
+        assertEqual(rank[1], r2);
+        assertEqual(rank[2], r3);
+
+        int[] gc = c.getRidersGeneralClassificationRank(race);
+        assertEqual(gc.length, 3);
+        assertEqual(gc[0], r1);
+        assertEqual(gc[2], r3);
+
+        // Equal points keep the general classification order
+        int[] points = c.getRidersPointClassificationRank(race);
+        assertEqual(points.length, 3);
+        assertEqual(points[0], r1);
+        assertEqual(points[1], r2);
+        return null;
+    }
+
+    public String testLargeFieldIsSorted() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Big team", null);
+        int race = c.createRace("Big race", null);
+        int stage = c.addStageToRace(race, "Big stage", null, 20, LocalDateTime.now(), StageType.TT);
+        c.concludeStagePreparation(stage);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            int rider = c.createRider(team, "Rider " + i, 1990);
+            c.registerRiderResultsInStage(stage, rider, LocalTime.of(10, 0), LocalTime.of(10, 30).plusSeconds(random.nextInt(60)));
+        }
+
+        int[] rank = c.getRidersRankInStage(stage);
+        LocalTime[] times = c.getRankedAdjustedElapsedTimesInStage(stage);
+        assertEqual(rank.length == 200, true);
+        for (int i = 1; i < times.length; i++) {
+            assertEqual(times[i].isBefore(times[i - 1]), false);
+            if (times[i].equals(times[i - 1])) assertEqual(rank[i] > rank[i - 1], true);
+        }
+        return null;
+    }
+}
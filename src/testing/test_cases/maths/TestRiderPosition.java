@@ -0,0 +1,63 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Random;
+
+@SuppressWarnings("SameReturnValue")
+public class TestRiderPosition extends testing.TestCase {
+    public String testPositionsMatchFullRanking() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        CyclingPortal c = new CyclingPortal();
+        int team = c.createTeam("Positions", null);
+        int race = c.createRace("Position race", null);
+        int stage1 = c.addStageToRace(race, "Position flat", null, 100, LocalDateTime.now(), StageType.FLAT);
+        int stage2 = c.addStageToRace(race, "Position climb", null, 100, LocalDateTime.now(), StageType.HIGH_MOUNTAIN);
+        c.addIntermediateSprintToStage(stage1, 40);
+        c.addCategorizedClimbToStage(stage2, 80d, SegmentType.C2, 7d, 10d);
+        c.concludeStagePreparation(stage1);
+        c.concludeStagePreparation(stage2);
+
+        Random random = new Random(9);
+        LocalTime start = LocalTime.of(11, 0);
+        int[] riders = new int[300];
+        for (int i = 0; i < riders.length; i++) {
+            riders[i] = c.createRider(team, "Position " + i, 1995);
+            c.registerRiderResultsInStage(stage1, riders[i], start,
+                    start.plusSeconds(3000 + random.nextInt(60)),
+                    start.plusSeconds(9000 + random.nextInt(60)));
+            // Only half the riders finish the second stage
+            if (i % 2 == 0) {
+                c.registerRiderResultsInStage(stage2, riders[i], start,
+                        start.plusSeconds(3000 + random.nextInt(60)),
+                        start.plusSeconds(9000 + random.nextInt(60)));
+            }
+        }
+        // Move some riders around after the standings exist
+        c.getRiderPositionInGeneralClassification(race, riders[0]);
+        for (int i = 0; i < riders.length; i += 7) {
+            c.deleteRiderResultsInStage(stage1, riders[i]);
+        }
+        int outsider = c.createRider(team, "Position outsider", 1995);
+
+        int[] gc = c.getRidersGeneralClassificationRank(race);
+        int[] points = c.getRidersPointClassificationRank(race);
+        int[] mountain = c.getRidersMountainPointClassificationRank(race);
+        for (int i = 0; i < gc.length; i++) {
+            assertEqual(c.getRiderPositionInGeneralClassification(race, gc[i]) == i + 1, true);
+            assertEqual(c.getRiderPositionInPointClassification(race, points[i]) == i + 1, true);
+            assertEqual(c.getRiderPositionInMountainPointClassification(race, mountain[i]) == i + 1, true);
+        }
+
+        assertEqual(c.getRiderPositionInGeneralClassification(race, outsider), 0);
+        assertEqual(c.getRiderPositionInPointClassification(race, outsider), 0);
+        try {
+            c.getRiderPositionInMountainPointClassification(race, outsider + 1);
+            return "unknown rider was accepted";
+        } catch (IDNotRecognisedException e) {
+            // Expected
+        }
+        return null;
+    }
+}
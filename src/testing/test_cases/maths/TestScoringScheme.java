@@ -0,0 +1,64 @@
+package testing.test_cases.maths;
+
+import cycling.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+@SuppressWarnings("SameReturnValue")
+public class TestScoringScheme extends testing.TestCase {
+    public String testCustomScheme() throws IDNotRecognisedException, InvalidNameException, IllegalNameException, InvalidLengthException, InvalidStageStateException, InvalidLocationException, InvalidStageTypeException, DuplicatedResultException, InvalidCheckpointsException, AssertError {
+        Map<StageType, int[]> stagePoints = new EnumMap<>(StageType.class);
+        stagePoints.put(StageType.FLAT, new int[]{3, 2, 1});
+        Map<SegmentType, int[]> segmentPoints = new EnumMap<>(SegmentType.class);
+        segmentPoints.put(SegmentType.SPRINT, new int[]{1});
+        int[] flat = stagePoints.get(StageType.FLAT);
+        ScoringTable table = new ScoringTable(stagePoints, segmentPoints);
+        // The table keeps its own copy
+        flat[0] = 100;
+
+        CyclingPortal c = new CyclingPortal(table);
+        int team = c.createTeam("Amateurs", null);
+        int race = c.createRace("Club race", null);
+        int stage = c.addStageToRace(race, "Club stage", null, 50, LocalDateTime.now(), StageType.FLAT);
+        c.addIntermediateSprintToStage(stage, 20);
+        c.concludeStagePreparation(stage);
+
+        LocalTime s = LocalTime.of(9, 0);
+        int[] riders = new int[4];
+        for (int i = 0; i < riders.length; i++) {
+            riders[i] = c.createRider(team, "Amateur " + i, 1990);
+            c.registerRiderResultsInStage(stage, riders[i], s, s.plusMinutes(30 + i), s.plusMinutes(90 + 2 * i));
+        }
+
+        assertEqual(Arrays.equals(c.getRidersRankInStage(stage), riders), true);
+        assertEqual(Arrays.equals(c.getRidersPointsInStage(stage), new int[]{3 + 1, 2, 1, 0}), true);
+        assertEqual(Arrays.equals(c.getRidersMountainPointsInStage(stage), new int[]{0, 0, 0, 0}), true);
+        return null;
+    }
+
+    public String testTourDeFranceTable() throws AssertError {
+        ScoringTable table = ScoringTable.TOUR_DE_FRANCE;
+        assertEqual(table.stagePoints(StageType.FLAT, 0), 50);
+        assertEqual(table.stagePoints(StageType.TT, 14), 1);
+        assertEqual(table.stagePoints(StageType.FLAT, 15), 0);
+        assertEqual(table.segmentPoints(SegmentType.HC, 7), 2);
+        assertEqual(table.segmentPoints(SegmentType.C4, 1), 0);
+        assertEqual(table.segmentPoints(SegmentType.SPRINT, 200), 0);
+        return null;
+    }
+
+    public String testNegativePointsRejected() {
+        Map<StageType, int[]> stagePoints = new EnumMap<>(StageType.class);
+        stagePoints.put(StageType.FLAT, new int[]{-1});
+        try {
+            new ScoringTable(stagePoints, new EnumMap<>(SegmentType.class));
+            return "negative points were accepted";
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}